@@ -0,0 +1,86 @@
+package sn.finappli.cdcscanner.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for the scan endpoint of the backend, on a loopback port. Each request is answered after
+ * {@code latency} plus a uniform jitter of up to {@code jitter}, and a {@code failureRate} share of them fail with
+ * a 503 so that retries and error accounting can be exercised.
+ */
+final class BackendStub implements AutoCloseable {
+
+    static final String SCAN_ENDPOINT = "/api/check-scan";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Duration latency;
+    private final Duration jitter;
+    private final double failureRate;
+    private final LongAdder received = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    BackendStub(Duration latency, Duration jitter, double failureRate) throws IOException {
+        if (failureRate < 0 || failureRate > 1) throw new IllegalArgumentException("INVALID_FAILURE_RATE");
+        this.latency = latency;
+        this.jitter = jitter;
+        this.failureRate = failureRate;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(SCAN_ENDPOINT, this::answer);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * A stub answering at once and never failing.
+     */
+    static BackendStub instant() throws IOException {
+        return new BackendStub(Duration.ZERO, Duration.ZERO, 0);
+    }
+
+    URI uri() {
+        return URI.create(STR."http://127.0.0.1:\{server.getAddress().getPort()}");
+    }
+
+    long received() {
+        return received.sum();
+    }
+
+    long failed() {
+        return failed.sum();
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getRequestBody().readAllBytes();
+            received.increment();
+            var random = ThreadLocalRandom.current();
+            var delay = latency.toNanos() + (jitter.isPositive() ? random.nextLong(jitter.toNanos()) : 0);
+            if (delay > 0) Thread.sleep(Duration.ofNanos(delay));
+            if (failureRate > 0 && random.nextDouble() < failureRate) {
+                failed.increment();
+                exchange.sendResponseHeaders(503, -1);
+            } else {
+                exchange.sendResponseHeaders(201, -1);
+            }
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,69 @@
+package sn.finappli.cdcscanner.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sn.finappli.cdcscanner.model.output.CheckNumberMatch;
+import sn.finappli.cdcscanner.service.impl.CheckNumberExtractor;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Check-number extraction on OCR output of the bundled specimen cheque, against the former
+ * split-and-match implementation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckNumberExtractorBenchmark {
+
+    static final String FULL_PAGE_TEXT = """
+            SPECIMEN CHEQUE
+            Payez contre ce chèque non endossable MILLE CINQ CENT CINQUANTE
+            Sauf au profit d'une banque ou d'un établissement assimilé somme en toute lettres
+            EUROS ET QUARANTE CENTIMES € 1550,40
+            A JEAN DUPOND A PARIS
+            Payable en France N° de compte Le 01/01/2022
+            89999 0000001 12345 25874 14 1235478 78 25 9999999
+            PARIS 18ème Mr et Mme MARTIN Signature
+            36 QUAI DE LA BOURSE 421 Avenue De France Dupond
+            75 018 PARIS 75 018 PARIS
+            TÉL. : 01 49 99 99 99
+            Chèque N° Série BB Chèque N° 0000086 (56)
+            """;
+
+    static final String CMC_BAND_TEXT = "#0000086# 300040012345< 000012345691#\n";
+
+    @Param({"FULL_PAGE", "CMC_BAND"})
+    public String input;
+
+    private String text;
+    private final CheckNumberExtractor extractor = new CheckNumberExtractor();
+
+    @Setup
+    public void setUp() {
+        text = "FULL_PAGE".equals(input) ? FULL_PAGE_TEXT : CMC_BAND_TEXT;
+    }
+
+    @Benchmark
+    public String splitAndMatch() {
+        return Arrays.stream(text.split("\\s")).filter(r -> r.matches("\\d{7}")).findFirst().orElse("");
+    }
+
+    @Benchmark
+    public CheckNumberMatch singlePass() {
+        return extractor.extract(text);
+    }
+}
@@ -0,0 +1,97 @@
+package sn.finappli.cdcscanner.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sn.finappli.cdcscanner.model.ChequeTemplate;
+import sn.finappli.cdcscanner.model.output.ChequeReading;
+import sn.finappli.cdcscanner.model.output.ScanImage;
+import sn.finappli.cdcscanner.service.impl.PreprocessingPipeline;
+import sn.finappli.cdcscanner.service.impl.TesseractEngine;
+import sn.finappli.cdcscanner.service.impl.TesseractEnginePool;
+import sn.finappli.cdcscanner.service.impl.TesseractOCRReaderImpl;
+import sn.finappli.cdcscanner.utility.AppConfig;
+import sn.finappli.cdcscanner.utility.ImageUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Preprocessing and OCR of the bundled specimen cheque rendered at several resolutions. The {@code ocr}
+ * benchmark needs the Tesseract native library and {@code ocr.datapath} (or {@code tessdata}); without them
+ * only {@code preprocess} yields results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OcrBenchmark {
+
+    @Param({"150", "300", "600"})
+    public int dpi;
+
+    private BufferedImage image;
+    private File file;
+    private PreprocessingPipeline preprocessing;
+    private TesseractEnginePool pool;
+    private TesseractOCRReaderImpl reader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        image = chequeAt(dpi);
+        file = Files.createTempFile("cheque-", STR."-\{dpi}.png").toFile();
+        file.deleteOnExit();
+        ImageIO.write(image, "png", file);
+        preprocessing = PreprocessingPipeline.of("grayscale", "dpi", "deskew");
+        pool = new TesseractEnginePool(1, Duration.ofMinutes(1), () -> new TesseractEngine(
+                AppConfig.getString("ocr.datapath", System.getenv("tessdata")), AppConfig.getString("ocr.language", "fra")));
+        reader = new TesseractOCRReaderImpl(pool, ChequeTemplate.getDefault(), preprocessing);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public ScanImage preprocess() {
+        return preprocessing.apply(new ScanImage(image, dpi));
+    }
+
+    @Benchmark
+    public ChequeReading ocr() {
+        return reader.readCheque(file);
+    }
+
+    /**
+     * The specimen as a scanner would produce it at {@code dpi}, the bundled file being a 755 pixels wide
+     * rendering of a 175 mm cheque.
+     */
+    static BufferedImage chequeAt(int dpi) throws IOException {
+        BufferedImage specimen;
+        try (var in = Objects.requireNonNull(OcrBenchmark.class.getResourceAsStream("/images/cheque-modele-5-1.jpg"))) {
+            specimen = ImageIO.read(in);
+        }
+        var width = dpi * 175 / 25.4;
+        return ImageUtils.scale(specimen, width / specimen.getWidth());
+    }
+}
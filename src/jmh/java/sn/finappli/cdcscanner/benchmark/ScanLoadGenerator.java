@@ -0,0 +1,184 @@
+package sn.finappli.cdcscanner.benchmark;
+
+import org.jetbrains.annotations.Nullable;
+import sn.finappli.cdcscanner.model.ChequeTemplate;
+import sn.finappli.cdcscanner.model.output.ChequeReading;
+import sn.finappli.cdcscanner.model.output.ScanImage;
+import sn.finappli.cdcscanner.model.output.ScanRegistrationOutput;
+import sn.finappli.cdcscanner.security.TokenManager;
+import sn.finappli.cdcscanner.service.impl.BackendGateway;
+import sn.finappli.cdcscanner.service.impl.PreprocessingPipeline;
+import sn.finappli.cdcscanner.service.impl.TesseractEngine;
+import sn.finappli.cdcscanner.service.impl.TesseractEnginePool;
+import sn.finappli.cdcscanner.service.impl.TesseractOCRReaderImpl;
+import sn.finappli.cdcscanner.utility.AppConfig;
+import sn.finappli.cdcscanner.utility.JsonCodec;
+import sn.finappli.cdcscanner.utility.LatencyRecorder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless capacity test of the scan upload path: how many terminals, and scans per second, {@code /api/check-scan}
+ * takes before its latency degrades.
+ * <p>
+ * {@code load.terminals} simulated terminals (50), each on a virtual thread, post scans at
+ * {@code load.rate} scans per second each (1) for {@code load.duration} (30 s), after a {@code load.warmup} (5 s)
+ * left out of the figures. Scans are synthetic, or with {@code load.source=sample} the reading of the bundled
+ * specimen cheque (which needs Tesseract). They go to {@code load.target} when set, otherwise to a local
+ * {@link BackendStub} answering after {@code load.stub.latency} (20 ms) plus up to {@code load.stub.jitter} (10 ms),
+ * and failing {@code load.stub.failure-rate} of the requests (0). Durations are in milliseconds.
+ * <p>
+ * Terminals follow a fixed schedule whatever the answers, as real ones do: response times are measured from the
+ * time a scan was due, so a backend that falls behind shows in the percentiles instead of slowing the load down.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec@load-test -Dload.args="-Dload.terminals=500 -Dload.rate=2"
+ * </pre>
+ */
+public final class ScanLoadGenerator {
+
+    private static final String[] RECIPIENTS = {"JEAN DUPOND", "AWA NDIAYE", "MOUSSA DIOP", "FATOU SALL"};
+
+    private final URI target;
+    private final int terminals;
+    private final double rate;
+    private final @Nullable ChequeReading sample;
+
+    private final LatencyRecorder responseTime = new LatencyRecorder("response time");
+    private final LatencyRecorder serviceTime = new LatencyRecorder("service time");
+    private final LongAdder delivered = new LongAdder();
+    private final Map<Integer, LongAdder> errors = new ConcurrentHashMap<>();
+
+    public ScanLoadGenerator(URI target, int terminals, double rate, @Nullable ChequeReading sample) {
+        if (terminals < 1 || rate <= 0) throw new IllegalArgumentException("INVALID_LOAD");
+        this.target = target;
+        this.terminals = terminals;
+        this.rate = rate;
+        this.sample = sample;
+    }
+
+    public static void main(String[] args) throws Exception {
+        var terminals = AppConfig.getInt("load.terminals", 50);
+        var rate = Double.parseDouble(AppConfig.getString("load.rate", "1"));
+        var warmup = AppConfig.getDuration("load.warmup", Duration.ofSeconds(5));
+        var duration = AppConfig.getDuration("load.duration", Duration.ofSeconds(30));
+        var sample = "sample".equals(AppConfig.getString("load.source", "synthetic")) ? readSample() : null;
+        var target = AppConfig.get("load.target");
+
+        try (var stub = target != null ? null : new BackendStub(
+                AppConfig.getDuration("load.stub.latency", Duration.ofMillis(20)),
+                AppConfig.getDuration("load.stub.jitter", Duration.ofMillis(10)),
+                Double.parseDouble(AppConfig.getString("load.stub.failure-rate", "0")))) {
+            var uri = stub != null ? stub.uri() : URI.create(target);
+            System.out.println(STR."Scan upload load: \{terminals} terminals x \{rate} scans/s for \{duration.toSeconds()} s against \{uri}");
+            var generator = new ScanLoadGenerator(uri, terminals, rate, sample);
+            generator.run(warmup, duration);
+            generator.report(duration);
+            if (stub != null) System.out.println(STR."  stub: \{stub.received()} received, \{stub.failed()} failed on purpose");
+        }
+        TokenManager.getInstance().close();
+    }
+
+    /**
+     * Runs every terminal until the end of the measurement; returns once they have all finished.
+     */
+    public void run(Duration warmup, Duration duration) {
+        var start = System.nanoTime();
+        var measureFrom = start + warmup.toNanos();
+        var end = measureFrom + duration.toNanos();
+        try (var gateway = new BackendGateway(target, Duration.ofSeconds(5), Duration.ofSeconds(30));
+             var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < terminals; i++) {
+                var terminal = i;
+                executor.execute(() -> terminal(gateway, terminal, start, measureFrom, end));
+            }
+        }
+    }
+
+    private void terminal(BackendGateway gateway, int index, long start, long measureFrom, long end) {
+        var appId = UUID.nameUUIDFromBytes(STR."terminal-\{index}".getBytes(StandardCharsets.UTF_8));
+        var ip = STR."10.0.\{(index >> 8) & 0xFF}.\{index & 0xFF}";
+        var interval = (long) (1e9 / rate);
+        // terminals are spread over the first interval rather than all firing together
+        var due = start + ThreadLocalRandom.current().nextLong(interval);
+        try {
+            while (due < end) {
+                var wait = due - System.nanoTime();
+                if (wait > 0) Thread.sleep(Duration.ofNanos(wait));
+                var sent = System.nanoTime();
+                var status = upload(gateway, scan(appId, ip));
+                var done = System.nanoTime();
+                if (due >= measureFrom) record(status, done - due, done - sent);
+                due += interval;
+            }
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int upload(BackendGateway gateway, ScanRegistrationOutput scan) throws InterruptedException {
+        try {
+            var request = TokenManager.getInstance()
+                    .authorize(gateway.request(BackendStub.SCAN_ENDPOINT), "POST", BackendStub.SCAN_ENDPOINT)
+                    .POST(JsonCodec.body(scan))
+                    .header("Content-type", "application/json")
+                    .header("Idempotency-Key", UUID.randomUUID().toString())
+                    .build();
+            return gateway.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException _) {
+            return -1;
+        }
+    }
+
+    private ScanRegistrationOutput scan(UUID appId, String ip) {
+        if (sample != null) return ScanRegistrationOutput.of(appId, ip, sample);
+        var random = ThreadLocalRandom.current();
+        return new ScanRegistrationOutput(appId, ip, "%07d".formatted(random.nextInt(10_000_000)),
+                RECIPIENTS[random.nextInt(RECIPIENTS.length)], LocalDateTime.now(),
+                BigDecimal.valueOf(random.nextLong(1_000, 10_000_000), 2));
+    }
+
+    private void record(int status, long responseNanos, long serviceNanos) {
+        responseTime.record(responseNanos);
+        serviceTime.record(serviceNanos);
+        if ((status >= 200 && status < 300) || status == 409) delivered.increment();
+        else errors.computeIfAbsent(status, _ -> new LongAdder()).increment();
+    }
+
+    private void report(Duration duration) {
+        var failed = errors.values().stream().mapToLong(LongAdder::sum).sum();
+        var total = delivered.sum() + failed;
+        var byStatus = new TreeMap<Integer, Long>();
+        errors.forEach((status, count) -> byStatus.put(status, count.sum()));
+        System.out.println("  %d scans, %.1f delivered/s, %d errors (%.2f%%)%s".formatted(total,
+                delivered.sum() / (double) duration.toSeconds(), failed, total == 0 ? 0 : failed * 100.0 / total,
+                byStatus.isEmpty() ? "" : STR.", by status (-1 = no answer): \{byStatus}"));
+        System.out.println(STR."  \{responseTime.snapshot()}");
+        System.out.println(STR."  \{serviceTime.snapshot()}");
+    }
+
+    /**
+     * The reading of the bundled specimen, OCR'd once and replayed by every terminal.
+     */
+    private static ChequeReading readSample() throws IOException {
+        try (var pool = new TesseractEnginePool(1, Duration.ofMinutes(1), () -> new TesseractEngine(
+                AppConfig.getString("ocr.datapath", System.getenv("tessdata")), AppConfig.getString("ocr.language", "fra")))) {
+            var reader = new TesseractOCRReaderImpl(pool, ChequeTemplate.getDefault(), PreprocessingPipeline.getInstance());
+            var reading = reader.readCheque(new ScanImage(OcrBenchmark.chequeAt(300), 300));
+            if (reading.cmc().isEmpty()) throw new IllegalStateException("SAMPLE_CHEQUE_NOT_READ");
+            return reading;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package sn.finappli.cdcscanner.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sn.finappli.cdcscanner.model.output.ChequeReading;
+import sn.finappli.cdcscanner.model.output.ScanRegistrationOutput;
+import sn.finappli.cdcscanner.service.impl.BackendGateway;
+import sn.finappli.cdcscanner.service.impl.CheckNumberExtractor;
+import sn.finappli.cdcscanner.utility.JsonCodec;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * From OCR text to an acknowledged upload: check-number extraction, payload, JSON, request building and the
+ * round trip to a local stub of the backend. OCR itself is measured by {@link OcrBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScanUploadBenchmark {
+
+    private final CheckNumberExtractor extractor = new CheckNumberExtractor();
+    private BackendStub backend;
+    private BackendGateway gateway;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        backend = BackendStub.instant();
+        gateway = new BackendGateway(backend.uri(), Duration.ofSeconds(5), Duration.ofSeconds(5));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        gateway.close();
+        backend.close();
+    }
+
+    @Benchmark
+    public HttpRequest scanToRequest() throws IOException {
+        return request(payload());
+    }
+
+    @Benchmark
+    public int scanToUpload() throws IOException, InterruptedException {
+        return gateway.send(request(payload()), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private ScanRegistrationOutput payload() {
+        var match = extractor.extract(CheckNumberExtractorBenchmark.FULL_PAGE_TEXT);
+        var reading = new ChequeReading(match.value(), SerializationBenchmark.SCAN.amount(), SerializationBenchmark.SCAN.recipient(),
+                CheckNumberExtractorBenchmark.FULL_PAGE_TEXT, match.confidence());
+        return ScanRegistrationOutput.of(SerializationBenchmark.SCAN.appId(), SerializationBenchmark.SCAN.ip(), reading);
+    }
+
+    private HttpRequest request(ScanRegistrationOutput payload) throws IOException {
+        return gateway.request(BackendStub.SCAN_ENDPOINT)
+                .POST(JsonCodec.body(payload))
+                .header("Content-type", "application/json")
+                .header("Idempotency-Key", UUID.randomUUID().toString())
+                .build();
+    }
+}
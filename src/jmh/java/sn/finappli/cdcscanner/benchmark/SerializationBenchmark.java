@@ -0,0 +1,46 @@
+package sn.finappli.cdcscanner.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sn.finappli.cdcscanner.model.output.ScanRegistrationOutput;
+import sn.finappli.cdcscanner.utility.JsonCodec;
+import sn.finappli.cdcscanner.utility.Utils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialisation of the scan upload payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    static final ScanRegistrationOutput SCAN = new ScanRegistrationOutput(
+            UUID.fromString("8c4b3c4e-5b7e-3f0e-9d3a-2f1c6a7b9e10"), "196.207.200.14", "0000086",
+            "JEAN DUPOND", LocalDateTime.of(2022, 1, 1, 10, 30), new BigDecimal("1550.40"));
+
+    @Benchmark
+    public String scanToJson() throws JsonProcessingException {
+        return Utils.classToJson(SCAN);
+    }
+
+    @Benchmark
+    public byte[] scanToBytes() throws JsonProcessingException {
+        return JsonCodec.toBytes(SCAN);
+    }
+}
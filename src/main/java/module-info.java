@@ -9,6 +9,9 @@ module sn.finappli.cdcscanner {
     requires org.kordamp.bootstrapfx.core;
     requires org.jetbrains.annotations;
     requires tess4j;
+    requires com.sun.jna;
+    requires org.apache.pdfbox;
+    requires org.apache.pdfbox.io;
     requires commons.lang3;
     requires lombok;
     requires org.slf4j;
@@ -25,5 +28,6 @@ module sn.finappli.cdcscanner {
     exports sn.finappli.cdcscanner.service;
     exports sn.finappli.cdcscanner.model.input;
     exports sn.finappli.cdcscanner.model.output;
+    exports sn.finappli.cdcscanner.utility to com.fasterxml.jackson.databind; // exported metrics and traces
     opens sn.finappli.cdcscanner.controller to javafx.fxml;
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package sn.finappli.cdcscanner;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -9,21 +10,52 @@ import javafx.stage.StageStyle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sn.finappli.cdcscanner.security.SecurityContextHolder;
+import sn.finappli.cdcscanner.security.TokenManager;
+import sn.finappli.cdcscanner.service.AuthenticationService;
 import sn.finappli.cdcscanner.service.RegistrationService;
+import sn.finappli.cdcscanner.service.ScannerService;
+import sn.finappli.cdcscanner.service.impl.AuthenticationServiceImpl;
+import sn.finappli.cdcscanner.service.impl.BackendGateway;
+import sn.finappli.cdcscanner.service.impl.FileScanJournal;
+import sn.finappli.cdcscanner.service.impl.FileScanOutbox;
+import sn.finappli.cdcscanner.service.impl.HotFolderIngestor;
+import sn.finappli.cdcscanner.service.impl.MetricsExporter;
+import sn.finappli.cdcscanner.service.impl.PublicIpLookup;
 import sn.finappli.cdcscanner.service.impl.RegistrationServiceImpl;
+import sn.finappli.cdcscanner.service.impl.ScanStatistics;
 import sn.finappli.cdcscanner.service.impl.ScannerServiceImpl;
+import sn.finappli.cdcscanner.service.impl.StartupOrchestrator;
+import sn.finappli.cdcscanner.service.impl.TesseractEnginePool;
+import sn.finappli.cdcscanner.utility.AppConfig;
+import sn.finappli.cdcscanner.utility.FxTaskExecutor;
+import sn.finappli.cdcscanner.utility.MachineIdentity;
+import sn.finappli.cdcscanner.utility.SystemUtils;
 
 import java.io.IOException;
+import java.net.URI;
+import java.time.LocalDate;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 public class CDCScannerApplication extends Application {
 
     private static final Logger logger = LoggerFactory.getLogger(CDCScannerApplication.class);
 
     private final RegistrationService registrationService;
+    private final AuthenticationService authenticationService;
+    private final ScannerService scannerService;
+    private final StartupOrchestrator startup = new StartupOrchestrator();
+    private volatile HotFolderIngestor hotFolder;
 
-    CDCScannerApplication(RegistrationServiceImpl registrationService) {
+    public CDCScannerApplication() {
+        this(new RegistrationServiceImpl(), new AuthenticationServiceImpl(), new ScannerServiceImpl());
+    }
+
+    CDCScannerApplication(RegistrationService registrationService, AuthenticationService authenticationService,
+                          ScannerService scannerService) {
         this.registrationService = registrationService;
+        this.authenticationService = authenticationService;
+        this.scannerService = scannerService;
     }
 
     public static void main(String[] args) {
@@ -32,12 +64,6 @@ public class CDCScannerApplication extends Application {
 
     @Override
     public void start(Stage stage) throws IOException {
-        try {
-            new ScannerServiceImpl().listAllConnectedPrinters();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            logger.error(e.getMessage(), e);
-        }
         Parent root = FXMLLoader.load(Objects.requireNonNull(CDCScannerApplication.class.getResource("splash.fxml")));
 
         Scene scene = new Scene(root, 500, 300);
@@ -45,21 +71,109 @@ public class CDCScannerApplication extends Application {
         stage.setScene(scene);
         stage.show();
 
-        try {
-            SecurityContextHolder.clearContext();
-            var isAppRegistered = registrationService.isRegistered();
+        SecurityContextHolder.clearContext();
+        var config = startup.run("config", AppConfig::load);
+        var identity = startup.run("identity", SystemUtils::getAppIdentifier);
+        startup.run("public-ip", this::lookUpPublicIp);
+        // both are answered from the local verdict cache, the backend is only asked again in the background
+        var registration = startup.run("registration", registrationService::isRegistered);
+        var session = startup.run("session", authenticationService::restoreSession);
+        startup.run("printers", scannerService::listAllConnectedPrinters);
+        startup.run("ocr-warmup", () -> TesseractEnginePool.getInstance().warmUp());
+        startup.run("outbox", FileScanOutbox::getInstance);
+        startup.run("journal", this::openJournal);
+        startup.run("hot-folder", this::startHotFolder);
+        startup.run("metrics", () -> MetricsExporter.getInstance().start());
 
-            if (isAppRegistered) {
+        // the main window only opens for a registered terminal with a logged-in user; the other phases keep running
+        // behind it
+        var ready = CompletableFuture.allOf(config, identity).exceptionally(error -> {
+            logger.warn("Startup degraded: {}", error.getMessage());
+            return null;
+        });
+        var loggedIn = session.exceptionally(error -> {
+            logger.warn("Cannot restore the session: {}", error.getMessage());
+            return false;
+        });
+        CompletableFuture.allOf(ready, registration, loggedIn).whenComplete((_, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                logger.error(error.getMessage(), error);
+                // TODO throw error to user
+                System.exit(1);
+                return;
+            }
+            if (!Boolean.TRUE.equals(registration.join())) {
+                logger.warn("This terminal is not registered");
+                // TODO redirect to registration page
+            }
+            else if (!Boolean.TRUE.equals(loggedIn.join())) {
+                logger.info("No session to resume, the user has to log in");
                 // TODO redirect to login page
             }
             else {
-                // TODO redirect to registration page
+                showMainWindow(stage);
             }
-        } catch (InterruptedException e) {
+        }));
+        startup.whenAllDone().thenRun(startup::logReport);
+    }
+
+    /**
+     * Starts looking the public IP up in the background, unless {@code identity.public-ip} fixes it.
+     */
+    private void lookUpPublicIp() {
+        var identity = MachineIdentity.getInstance();
+        if (AppConfig.get("identity.public-ip") == null) {
+            identity.setPublicIpSource(new PublicIpLookup(
+                    URI.create(AppConfig.getString("identity.public-ip.url", "https://httpbin.org/ip"))));
+        }
+        identity.getPublicIp();
+    }
+
+    private void openJournal() throws IOException {
+        var journal = FileScanJournal.getInstance();
+        var retentionDays = AppConfig.getInt("journal.retention-days", 0);
+        if (retentionDays > 0) journal.compact(LocalDate.now().minusDays(retentionDays));
+    }
+
+    private void startHotFolder() throws IOException {
+        var ingestor = HotFolderIngestor.fromConfig();
+        if (ingestor == null) return;
+        ingestor.start();
+        hotFolder = ingestor;
+    }
+
+    private void showMainWindow(Stage splash) {
+        try {
+            Parent root = FXMLLoader.load(Objects.requireNonNull(CDCScannerApplication.class.getResource("homescreen.fxml")));
+            var stage = new Stage();
+            stage.setTitle("CDC Scanner");
+            stage.setScene(new Scene(root, 1000, 600));
+            stage.show();
+            splash.close();
+            logger.info("Main window ready in {} ms", startup.elapsedMillis());
+        } catch (IOException e) {
             logger.error(e.getMessage(), e);
-            // TODO throw error to user
-            System.exit(1);
         }
+    }
 
+    @Override
+    public void stop() {
+        startup.close();
+        FxTaskExecutor.getInstance().close();
+        if (scannerService instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                logger.error(e.getMessage(), e);
+            }
+        }
+        if (hotFolder != null) hotFolder.close();
+        TesseractEnginePool.getInstance().close();
+        FileScanOutbox.getInstance().close();
+        FileScanJournal.getInstance().close();
+        ScanStatistics.getInstance().close();
+        TokenManager.getInstance().close();
+        MetricsExporter.getInstance().close();
+        BackendGateway.getInstance().close();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,101 @@
+package sn.finappli.cdcscanner.controller;
+
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import sn.finappli.cdcscanner.service.impl.ScanStatistics;
+import sn.finappli.cdcscanner.utility.FrameCoalescer;
+
+import java.math.BigDecimal;
+import java.net.URL;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Today's totals, read from {@link ScanStatistics} when shown and then on each of its throttled notifications,
+ * applied on the next frame. Nothing is recomputed from the scans.
+ */
+public class DashboardController implements Initializable {
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("EEEE d MMMM yyyy", Locale.FRENCH);
+
+    @FXML
+    private Label dayLabel;
+    @FXML
+    private Label scannedLabel;
+    @FXML
+    private Label amountLabel;
+    @FXML
+    private Label failureRateLabel;
+    @FXML
+    private Label backlogLabel;
+    @FXML
+    private TableView<TellerRow> tellerTable;
+    @FXML
+    private TableColumn<TellerRow, String> tellerColumn;
+    @FXML
+    private TableColumn<TellerRow, String> tellerScannedColumn;
+    @FXML
+    private TableColumn<TellerRow, String> tellerAmountColumn;
+    @FXML
+    private TableColumn<TellerRow, String> tellerFailureRateColumn;
+
+    private final ScanStatistics statistics = ScanStatistics.getInstance();
+    private final Runnable listener = () -> FrameCoalescer.getInstance().post(this, this::show);
+
+    @Override
+    public void initialize(URL url, ResourceBundle resourceBundle) {
+        bind(tellerColumn, row -> row.teller().toString());
+        bind(tellerScannedColumn, row -> String.valueOf(row.counts().scanned()));
+        bind(tellerAmountColumn, row -> amount(row.counts().amount()));
+        bind(tellerFailureRateColumn, row -> rate(row.counts().failureRate()));
+    }
+
+    /**
+     * Starts or stops following the statistics, as the dashboard is shown or hidden.
+     */
+    public void setActive(boolean active) {
+        if (active) {
+            show();
+            statistics.addListener(listener);
+        } else {
+            statistics.removeListener(listener);
+        }
+    }
+
+    private void show() {
+        var today = statistics.today();
+        dayLabel.setText(DAY_FORMAT.format(today.day()));
+        scannedLabel.setText(String.valueOf(today.total().scanned()));
+        amountLabel.setText(amount(today.total().amount()));
+        failureRateLabel.setText(rate(today.total().failureRate()));
+        backlogLabel.setText(String.valueOf(today.backlog()));
+        tellerTable.setItems(FXCollections.observableArrayList(today.byTeller().entrySet().stream()
+                .map(teller -> new TellerRow(teller.getKey(), teller.getValue()))
+                .sorted(Comparator.comparing(TellerRow::teller))
+                .toList()));
+    }
+
+    private static String amount(BigDecimal amount) {
+        return String.format(Locale.FRANCE, "%,.2f", amount);
+    }
+
+    private static String rate(double rate) {
+        return String.format(Locale.FRANCE, "%.1f %%", rate * 100);
+    }
+
+    private static void bind(TableColumn<TellerRow, String> column, Function<TellerRow, String> value) {
+        column.setCellValueFactory(cell -> new ReadOnlyStringWrapper(value.apply(cell.getValue())).getReadOnlyProperty());
+    }
+
+    private record TellerRow(UUID teller, ScanStatistics.Counts counts) {
+    }
+}
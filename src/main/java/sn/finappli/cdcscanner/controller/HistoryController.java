@@ -0,0 +1,131 @@
+package sn.finappli.cdcscanner.controller;
+
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.DatePicker;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sn.finappli.cdcscanner.model.output.ScanRecord;
+import sn.finappli.cdcscanner.service.ScanJournal;
+import sn.finappli.cdcscanner.service.impl.FileScanJournal;
+import sn.finappli.cdcscanner.utility.FxTaskExecutor;
+import sn.finappli.cdcscanner.utility.PagedList;
+
+import java.net.URL;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ResourceBundle;
+import java.util.function.Function;
+
+/**
+ * Scan history, read from the local journal. The table only ever holds the pages around the rows on screen
+ * ({@link PagedList}), so opening it costs one count and one page whatever the size of the history.
+ */
+public class HistoryController implements Initializable {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryController.class);
+
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_PAGES = 20;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+
+    @FXML
+    private DatePicker fromDate;
+    @FXML
+    private DatePicker toDate;
+    @FXML
+    private TextField cmcField;
+    @FXML
+    private TableView<ScanRecord> table;
+    @FXML
+    private TableColumn<ScanRecord, String> dateColumn;
+    @FXML
+    private TableColumn<ScanRecord, String> cmcColumn;
+    @FXML
+    private TableColumn<ScanRecord, String> amountColumn;
+    @FXML
+    private TableColumn<ScanRecord, String> recipientColumn;
+    @FXML
+    private Label countLabel;
+
+    private final ScanJournal journal = FileScanJournal.getInstance();
+
+    @Override
+    public void initialize(URL url, ResourceBundle resourceBundle) {
+        bind(dateColumn, scan -> DATE_FORMAT.format(scan.date()));
+        bind(cmcColumn, ScanRecord::cmc);
+        bind(amountColumn, scan -> scan.amount() == null ? "" : scan.amount().toPlainString());
+        bind(recipientColumn, scan -> scan.recipient() == null ? "" : scan.recipient());
+        refresh();
+    }
+
+    /**
+     * Reloads the history with the current filters, e.g. when the screen is shown again.
+     */
+    public void refresh() {
+        var cmc = cmcField.getText() == null ? "" : cmcField.getText().strip();
+        var from = fromDate.getValue();
+        var to = toDate.getValue();
+        FxTaskExecutor.getInstance().submitIo(_ -> query(cmc, from, to))
+                .onSucceeded(scans -> {
+                    table.setItems(scans);
+                    table.scrollTo(0);
+                    countLabel.setText(STR."\{scans.size()} scan(s)");
+                })
+                .onFailed(error -> log.error("Cannot read the scan history", error));
+    }
+
+    @FXML
+    private void onSearch() {
+        refresh();
+    }
+
+    @FXML
+    private void onReset() {
+        fromDate.setValue(null);
+        toDate.setValue(null);
+        cmcField.clear();
+        refresh();
+    }
+
+    private ObservableList<ScanRecord> query(String cmc, LocalDate from, LocalDate to) throws Exception {
+        if (!cmc.isEmpty()) {
+            // the scans of one cheque are few, they are read at once and filtered here
+            return FXCollections.observableArrayList(journal.findByCmc(cmc).stream()
+                    .filter(scan -> from == null || !scan.date().toLocalDate().isBefore(from))
+                    .filter(scan -> to == null || !scan.date().toLocalDate().isAfter(to))
+                    .toList());
+        }
+        if (from == null && to == null) {
+            // pages are read back from the end as it is now, so that scans recorded meanwhile do not shift them
+            var mark = journal.mark();
+            return new PagedList<>(toInt(mark.count()), PAGE_SIZE, MAX_PAGES,
+                    (after, skip, limit) -> journal.latest(after == null ? mark.end() : after.id(), skip, limit));
+        }
+        var first = from == null ? LocalDate.EPOCH : from;
+        var last = to == null ? LocalDate.now() : to;
+        return new PagedList<>(toInt(journal.countBetween(first, last)), PAGE_SIZE, MAX_PAGES,
+                (after, skip, limit) -> journal.findBetween(first, last, after == null ? -1 : after.id(), skip, limit));
+    }
+
+    private static int toInt(long size) {
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    private static void bind(TableColumn<ScanRecord, String> column, Function<ScanRecord, String> value) {
+        // rows whose page is still loading have no item yet
+        column.setCellValueFactory(cell -> cell.getValue() == null ? null : text(value.apply(cell.getValue())));
+    }
+
+    private static ObservableValue<String> text(String value) {
+        return new ReadOnlyStringWrapper(value).getReadOnlyProperty();
+    }
+}
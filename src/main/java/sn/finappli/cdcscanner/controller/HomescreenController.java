@@ -1,13 +1,87 @@
 package sn.finappli.cdcscanner.controller;
 
+import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.layout.StackPane;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sn.finappli.cdcscanner.CDCScannerApplication;
 
+import java.io.IOException;
 import java.net.URL;
+import java.util.Objects;
 import java.util.ResourceBundle;
 
 public class HomescreenController implements Initializable {
+
+    private static final Logger log = LoggerFactory.getLogger(HomescreenController.class);
+
+    @FXML
+    private StackPane content;
+    @FXML
+    private Node scanView;
+
+    private Parent historyView;
+    private HistoryController historyController;
+    private Parent dashboardView;
+    private DashboardController dashboardController;
+
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
 
     }
+
+    @FXML
+    private void onShowScan() {
+        show(scanView);
+    }
+
+    /**
+     * The history screen is built once; showing it again only reloads its data.
+     */
+    @FXML
+    private void onShowHistory() {
+        try {
+            if (historyView == null) {
+                var loader = loader("history.fxml");
+                historyView = loader.load();
+                historyController = loader.getController();
+            } else {
+                historyController.refresh();
+            }
+            show(historyView);
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The dashboard only follows the statistics while it is on screen.
+     */
+    @FXML
+    private void onShowDashboard() {
+        try {
+            if (dashboardView == null) {
+                var loader = loader("dashboard.fxml");
+                dashboardView = loader.load();
+                dashboardController = loader.getController();
+            }
+            show(dashboardView);
+            dashboardController.setActive(true);
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    private void show(Node view) {
+        if (dashboardController != null && view != dashboardView) dashboardController.setActive(false);
+        content.getChildren().setAll(view);
+    }
+
+    private static FXMLLoader loader(String view) {
+        return new FXMLLoader(Objects.requireNonNull(CDCScannerApplication.class.getResource(view)));
+    }
 }
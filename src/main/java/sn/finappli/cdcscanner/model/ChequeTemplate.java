@@ -0,0 +1,105 @@
+package sn.finappli.cdcscanner.model;
+
+import org.jetbrains.annotations.Nullable;
+import sn.finappli.cdcscanner.utility.AppConfig;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Where the fields of interest sit on a cheque. The default layout is the bundled
+ * {@code templates/cheque-modele-5-1.properties}; another one can be supplied with {@code ocr.template}.
+ */
+public record ChequeTemplate(String name, Map<Field, Region> regions) {
+
+    private static final String DEFAULT_TEMPLATE = "/templates/cheque-modele-5-1.properties";
+
+    public static ChequeTemplate getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    public @Nullable Region region(Field field) {
+        return regions.get(field);
+    }
+
+    public static ChequeTemplate load(Path path) throws IOException {
+        try (var in = Files.newInputStream(path)) {
+            return load(in);
+        }
+    }
+
+    public static ChequeTemplate load(InputStream in) throws IOException {
+        var properties = new Properties();
+        properties.load(in);
+        var regions = new EnumMap<Field, Region>(Field.class);
+        for (var field : Field.values()) {
+            var key = field.name().toLowerCase(Locale.ROOT);
+            var bounds = properties.getProperty(key);
+            if (bounds == null) continue;
+            var maxHeight = properties.getProperty(STR."\{key}.max-height");
+            regions.put(field, Region.parse(bounds,
+                    Boolean.parseBoolean(properties.getProperty(STR."\{key}.binarize", "false")),
+                    maxHeight == null ? 0 : Integer.parseInt(maxHeight.trim())));
+        }
+        if (!regions.containsKey(Field.CMC)) throw new IllegalArgumentException("TEMPLATE_WITHOUT_CMC_REGION");
+        return new ChequeTemplate(properties.getProperty("name", "custom"), Map.copyOf(regions));
+    }
+
+    public enum Field {
+        CMC, AMOUNT, RECIPIENT
+    }
+
+    /**
+     * A rectangle in fractions of the cheque size, with how the crop should be prepared before OCR.
+     *
+     * @param binarize  whether the crop is thresholded to black and white
+     * @param maxHeight the crop is downscaled to this height in pixels when larger, {@code 0} to keep it as is
+     */
+    public record Region(double x, double y, double width, double height, boolean binarize, int maxHeight) {
+
+        public Region {
+            if (x < 0 || y < 0 || width <= 0 || height <= 0 || x + width > 1.0001 || y + height > 1.0001)
+                throw new IllegalArgumentException(STR."INVALID_TEMPLATE_REGION: \{x},\{y},\{width},\{height}");
+        }
+
+        static Region parse(String bounds, boolean binarize, int maxHeight) {
+            var parts = bounds.split(",");
+            if (parts.length != 4) throw new IllegalArgumentException(STR."INVALID_TEMPLATE_REGION: \{bounds}");
+            return new Region(Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim()),
+                    Double.parseDouble(parts[2].trim()), Double.parseDouble(parts[3].trim()), binarize, maxHeight);
+        }
+
+        public Rectangle toRectangle(int imageWidth, int imageHeight) {
+            var left = (int) Math.floor(x * imageWidth);
+            var top = (int) Math.floor(y * imageHeight);
+            var right = Math.min(imageWidth, (int) Math.ceil((x + width) * imageWidth));
+            var bottom = Math.min(imageHeight, (int) Math.ceil((y + height) * imageHeight));
+            return new Rectangle(left, top, right - left, bottom - top);
+        }
+    }
+
+    private static final class Holder {
+        private static final ChequeTemplate DEFAULT = loadDefault();
+
+        private static ChequeTemplate loadDefault() {
+            var custom = AppConfig.get("ocr.template");
+            try {
+                if (custom != null) return load(Path.of(custom));
+                try (var in = Objects.requireNonNull(ChequeTemplate.class.getResourceAsStream(DEFAULT_TEMPLATE))) {
+                    return load(in);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package sn.finappli.cdcscanner.model.output;
+
+import java.util.UUID;
+
+public record AuthenticationOutput(Credentials obj1) {
+
+    public static AuthenticationOutput of(UUID appId, String code) {
+        return new AuthenticationOutput(new Credentials(appId, code));
+    }
+
+    public record Credentials(UUID appId, String code) {
+    }
+}
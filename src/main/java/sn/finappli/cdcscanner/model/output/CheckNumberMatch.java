@@ -0,0 +1,30 @@
+package sn.finappli.cdcscanner.model.output;
+
+/**
+ * A cheque number found in OCR text.
+ *
+ * @param value      the 7-digit cheque number, empty when nothing was found
+ * @param start      index of the first character of the match in the text, {@code -1} when nothing was found
+ * @param end        index after the last character of the match
+ * @param confidence from {@code 0} (nothing found) to {@code 1} (CMC7 line with a valid key)
+ */
+public record CheckNumberMatch(String value, Format format, int start, int end, double confidence) {
+
+    public static final CheckNumberMatch NONE = new CheckNumberMatch("", Format.NONE, -1, -1, 0);
+
+    public boolean isFound() {
+        return format != Format.NONE;
+    }
+
+    public enum Format {
+        /**
+         * Full CMC7 (MICR) line: cheque number (7) - interbank code (12) - account (12).
+         */
+        CMC7_LINE,
+        /**
+         * A standalone 7-digit token.
+         */
+        CMC_DIGITS,
+        NONE
+    }
+}
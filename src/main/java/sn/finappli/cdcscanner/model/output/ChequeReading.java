@@ -0,0 +1,15 @@
+package sn.finappli.cdcscanner.model.output;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+
+/**
+ * @param confidence how sure the reader is of the CMC, from {@code 0} (nothing read) to {@code 1}
+ */
+public record ChequeReading(String cmc, @Nullable BigDecimal amount, @Nullable String recipient, String text, double confidence) {
+
+    public static ChequeReading ofCmc(String cmc) {
+        return new ChequeReading(cmc, null, null, "", cmc.isEmpty() ? 0 : 1);
+    }
+}
@@ -0,0 +1,10 @@
+package sn.finappli.cdcscanner.model.output;
+
+import javax.print.PrintService;
+
+public record DeviceEvent(Type type, PrintService device) {
+
+    public enum Type {
+        ADDED, REMOVED, CHANGED
+    }
+}
@@ -0,0 +1,22 @@
+package sn.finappli.cdcscanner.model.output;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.time.Duration;
+
+public record OCRBatchResult(int index, File file, Status status, String cmc, @Nullable String error, Duration elapsed) {
+
+    public static OCRBatchResult of(int index, File file, String cmc, Duration elapsed) {
+        var status = cmc == null || cmc.isBlank() ? Status.EMPTY : Status.SUCCESS;
+        return new OCRBatchResult(index, file, status, cmc == null ? "" : cmc, null, elapsed);
+    }
+
+    public static OCRBatchResult failure(int index, File file, Throwable error, Duration elapsed) {
+        return new OCRBatchResult(index, file, Status.FAILURE, "", String.valueOf(error.getMessage()), elapsed);
+    }
+
+    public enum Status {
+        SUCCESS, EMPTY, FAILURE
+    }
+}
@@ -0,0 +1,24 @@
+package sn.finappli.cdcscanner.model.output;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The reading of one page of a multi-page document.
+ *
+ * @param page  index of the page in the document, from {@code 0}
+ * @param error why the page could not be decoded or read, {@code null} when it was
+ */
+public record PageReading(int page, ChequeReading reading, @Nullable String error) {
+
+    public static PageReading of(int page, ChequeReading reading) {
+        return new PageReading(page, reading, null);
+    }
+
+    public static PageReading failure(int page, Throwable error) {
+        return new PageReading(page, ChequeReading.ofCmc(""), String.valueOf(error.getMessage()));
+    }
+
+    public boolean isFailure() {
+        return error != null;
+    }
+}
@@ -0,0 +1,13 @@
+package sn.finappli.cdcscanner.model.output;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A decoded page and its resolution in dots per inch, {@code 0} when the file does not say.
+ */
+public record ScanImage(BufferedImage image, int dpi) {
+
+    public ScanImage withImage(BufferedImage image) {
+        return new ScanImage(image, dpi);
+    }
+}
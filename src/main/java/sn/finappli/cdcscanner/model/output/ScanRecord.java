@@ -0,0 +1,13 @@
+package sn.finappli.cdcscanner.model.output;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A scan as kept in the local journal; {@code id} is its position in the journal.
+ */
+public record ScanRecord(long id, UUID appId, String cmc, @Nullable String recipient, LocalDateTime date, @Nullable BigDecimal amount) {
+}
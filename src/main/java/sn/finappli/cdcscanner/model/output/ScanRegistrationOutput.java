@@ -5,4 +5,8 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 public record ScanRegistrationOutput(UUID appId, String ip, String cmc, String recipient, LocalDateTime date, BigDecimal amount) {
+
+    public static ScanRegistrationOutput of(UUID appId, String ip, ChequeReading reading) {
+        return new ScanRegistrationOutput(appId, ip, reading.cmc(), reading.recipient(), LocalDateTime.now(), reading.amount());
+    }
 }
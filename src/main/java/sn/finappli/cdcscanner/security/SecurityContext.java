@@ -3,4 +3,8 @@ package sn.finappli.cdcscanner.security;
 import java.time.LocalDateTime;
 
 public record SecurityContext(String token, String key, String enc, LocalDateTime expiry) {
+
+    public boolean isValidAt(LocalDateTime instant) {
+        return instant.isBefore(expiry);
+    }
 }
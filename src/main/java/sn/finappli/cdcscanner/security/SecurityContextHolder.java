@@ -1,19 +1,25 @@
 package sn.finappli.cdcscanner.security;
 
+/**
+ * Application-wide security context. The context is published through a volatile field, so a token obtained on
+ * one thread is immediately visible to the upload and worker threads without any locking.
+ */
 public final class SecurityContextHolder {
 
-    private static final ThreadLocal<SecurityContext> contextHolder = new ThreadLocal<>();
+    private static volatile SecurityContext context;
+
+    private SecurityContextHolder() {
+    }
 
     public static void setContext(SecurityContext context) {
-        contextHolder.set(context);
+        SecurityContextHolder.context = context;
     }
 
     public static SecurityContext getContext() {
-        return contextHolder.get();
+        return context;
     }
 
     public static void clearContext() {
-        contextHolder.remove();
+        context = null;
     }
 }
-
@@ -0,0 +1,188 @@
+package sn.finappli.cdcscanner.security;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sn.finappli.cdcscanner.service.impl.AuthenticationServiceImpl;
+import sn.finappli.cdcscanner.utility.AppConfig;
+import sn.finappli.cdcscanner.utility.LatencyRecorder;
+import sn.finappli.cdcscanner.utility.Metrics;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.HttpCookie;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lifecycle of the session token shared by every thread of the application.
+ * <p>
+ * Reads go through {@link SecurityContextHolder} and never lock. The token is refreshed in the background
+ * {@code auth.refresh-ahead} before it expires; concurrent refresh demands share one call to the backend
+ * (single flight). Requests are signed with the HMAC algorithm announced by the backend ({@code enc}), on a
+ * {@link Mac} initialised once per thread and per token rather than once per request.
+ */
+public final class TokenManager implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenManager.class);
+
+    private static final Duration MIN_RETRY = Duration.ofSeconds(5);
+    private static final LatencyRecorder REFRESH_LATENCY = Metrics.latency("auth.refresh");
+    private static final LongAdder REFRESH_FAILURES = Metrics.counter("auth.refresh.failures");
+
+    private final TokenRefresher refresher;
+    private final Duration refreshAhead;
+    private final @Nullable String staticToken;
+    private final AtomicReference<CompletableFuture<SecurityContext>> inFlight = new AtomicReference<>();
+    private final ThreadLocal<SigningKey> signingKeys = new ThreadLocal<>();
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("token-refresh").factory());
+    private ScheduledFuture<?> scheduledRefresh;
+
+    public TokenManager(TokenRefresher refresher, Duration refreshAhead, @Nullable String staticToken) {
+        this.refresher = refresher;
+        this.refreshAhead = refreshAhead;
+        this.staticToken = staticToken;
+    }
+
+    public static TokenManager getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Publishes a freshly obtained context and plans its refresh.
+     */
+    public void update(SecurityContext context) {
+        SecurityContextHolder.setContext(context);
+        schedule(Duration.between(LocalDateTime.now(), context.expiry()).minus(refreshAhead));
+    }
+
+    /**
+     * The current context if it has not expired, without ever waiting for a refresh.
+     */
+    public @Nullable SecurityContext current() {
+        var context = SecurityContextHolder.getContext();
+        if (context == null) return null;
+        if (context.isValidAt(LocalDateTime.now())) return context;
+        refresh();
+        return null;
+    }
+
+    /**
+     * Refreshes the token, or joins the refresh already under way.
+     */
+    public CompletableFuture<SecurityContext> refresh() {
+        var pending = inFlight.get();
+        if (pending != null) return pending;
+        var future = new CompletableFuture<SecurityContext>();
+        if (!inFlight.compareAndSet(null, future)) return inFlight.get();
+
+        var current = SecurityContextHolder.getContext();
+        if (current == null) {
+            inFlight.set(null);
+            future.completeExceptionally(new SecurityException("NOT_AUTHENTICATED"));
+            return future;
+        }
+        scheduler.execute(() -> {
+            var start = System.nanoTime();
+            try {
+                var refreshed = refresher.refresh(current);
+                update(refreshed);
+                future.complete(refreshed);
+                LOGGER.info("Token refreshed, valid until {}", refreshed.expiry());
+            } catch (Exception e) {
+                REFRESH_FAILURES.increment();
+                LOGGER.warn("Token refresh failed: {}", e.getMessage());
+                var remaining = Duration.between(LocalDateTime.now(), current.expiry());
+                if (!remaining.isNegative()) schedule(max(remaining.dividedBy(4), MIN_RETRY));
+                future.completeExceptionally(e);
+            } finally {
+                REFRESH_LATENCY.recordSince(start);
+                inFlight.compareAndSet(future, null);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Adds the session cookie and the request signature to {@code builder}. Requests go out unauthenticated while
+     * there is no valid token; the backend then answers 401 and the caller retries later.
+     */
+    public HttpRequest.Builder authorize(HttpRequest.Builder builder, String method, String path) {
+        var context = current();
+        if (context == null) {
+            return staticToken == null ? builder : builder.header("Cookie", cookie(staticToken));
+        }
+        var timestamp = String.valueOf(System.currentTimeMillis());
+        return builder.header("Cookie", cookie(context.token()))
+                .header("X-Timestamp", timestamp)
+                .header("X-Signature", sign(context, STR."\{method}\n\{path}\n\{timestamp}"));
+    }
+
+    public String sign(SecurityContext context, String payload) {
+        var key = signingKeys.get();
+        if (key == null || key.context() != context) {
+            key = new SigningKey(context, newMac(context));
+            signingKeys.set(key);
+        }
+        return Base64.getEncoder().encodeToString(key.mac().doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static Mac newMac(SecurityContext context) {
+        try {
+            var mac = Mac.getInstance(context.enc());
+            mac.init(new SecretKeySpec(context.key().getBytes(StandardCharsets.UTF_8), context.enc()));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new SecurityException("UNSUPPORTED_SIGNATURE_ALGORITHM", e);
+        }
+    }
+
+    private static String cookie(String token) {
+        var cookie = new HttpCookie("access_token", token);
+        cookie.setPath("/");
+        cookie.setVersion(1);
+        return cookie.toString();
+    }
+
+    private synchronized void schedule(Duration delay) {
+        if (scheduler.isShutdown()) return;
+        if (scheduledRefresh != null) scheduledRefresh.cancel(false);
+        scheduledRefresh = scheduler.schedule(this::refresh, Math.max(0, delay.toMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    private static Duration max(Duration a, Duration b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    @FunctionalInterface
+    public interface TokenRefresher {
+        SecurityContext refresh(SecurityContext current) throws Exception;
+    }
+
+    private record SigningKey(SecurityContext context, Mac mac) {
+    }
+
+    private static final class Holder {
+        private static final TokenManager INSTANCE = new TokenManager(
+                new AuthenticationServiceImpl()::refresh,
+                AppConfig.getDuration("auth.refresh-ahead", Duration.ofMinutes(5)),
+                AppConfig.get("auth.static-token"));
+    }
+}
@@ -0,0 +1,188 @@
+package sn.finappli.cdcscanner.security;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sn.finappli.cdcscanner.utility.AppConfig;
+import sn.finappli.cdcscanner.utility.SystemUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Last verdicts of the backend on this terminal, kept on disk so that startup and login do not wait for the
+ * network: whether the terminal is registered, and the session of the last user.
+ * <p>
+ * The verdicts are sealed with AES-GCM under a key generated on first use ({@code verdicts.key}, readable by the
+ * owner only), with the application identifier as associated data. A verdict edited by hand, or copied from
+ * another terminal, fails authentication and is ignored: the application then asks the backend again. They are
+ * read once, then served from memory.
+ */
+public final class VerdictCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VerdictCache.class);
+
+    private static final int FILE_MAGIC = 0x43564431; // CVD1
+    private static final int KEY_BYTES = 32;
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    private static final String CIPHER = "AES/GCM/NoPadding";
+
+    private final Path file;
+    private final Path keyFile;
+    private final Supplier<UUID> appId;
+    private final SecureRandom random = new SecureRandom();
+
+    private @Nullable Properties verdicts;
+
+    public VerdictCache(Path file, Path keyFile, Supplier<UUID> appId) {
+        this.file = file;
+        this.keyFile = keyFile;
+        this.appId = appId;
+    }
+
+    public static VerdictCache getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public synchronized @Nullable RegistrationVerdict registration() {
+        var properties = verdicts();
+        var checkedAt = properties.getProperty("registration.checked-at");
+        if (checkedAt == null) return null;
+        return new RegistrationVerdict(Boolean.parseBoolean(properties.getProperty("registration.registered")),
+                Instant.parse(checkedAt));
+    }
+
+    public synchronized void saveRegistration(boolean registered) {
+        var properties = verdicts();
+        properties.setProperty("registration.registered", String.valueOf(registered));
+        properties.setProperty("registration.checked-at", Instant.now().toString());
+        save(properties);
+    }
+
+    public synchronized @Nullable SessionVerdict session() {
+        var properties = verdicts();
+        var authenticatedAt = properties.getProperty("session.authenticated-at");
+        if (authenticatedAt == null) return null;
+        var context = new SecurityContext(properties.getProperty("session.token"), properties.getProperty("session.key"),
+                properties.getProperty("session.enc"), LocalDateTime.parse(properties.getProperty("session.expiry")));
+        return new SessionVerdict(context, Instant.parse(authenticatedAt));
+    }
+
+    public synchronized void saveSession(SecurityContext context) {
+        var properties = verdicts();
+        properties.setProperty("session.token", context.token());
+        properties.setProperty("session.key", context.key());
+        properties.setProperty("session.enc", context.enc());
+        properties.setProperty("session.expiry", context.expiry().toString());
+        properties.setProperty("session.authenticated-at", Instant.now().toString());
+        save(properties);
+    }
+
+    public synchronized void clearSession() {
+        var properties = verdicts();
+        properties.stringPropertyNames().stream().filter(name -> name.startsWith("session.")).forEach(properties::remove);
+        save(properties);
+    }
+
+    private Properties verdicts() {
+        if (verdicts == null) verdicts = load();
+        return verdicts;
+    }
+
+    private Properties load() {
+        var properties = new Properties();
+        if (!Files.isReadable(file) || !Files.isReadable(keyFile)) return properties;
+        try {
+            var sealed = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (sealed.remaining() < Integer.BYTES + IV_BYTES || sealed.getInt() != FILE_MAGIC) {
+                throw new IOException("NOT_A_VERDICT_FILE");
+            }
+            var iv = new byte[IV_BYTES];
+            sealed.get(iv);
+            var cipher = cipher(Cipher.DECRYPT_MODE, Files.readAllBytes(keyFile), iv);
+            var plain = cipher.doFinal(sealed.array(), sealed.position(), sealed.remaining());
+            properties.load(new ByteArrayInputStream(plain));
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            LOGGER.warn("Ignoring the cached verdicts of {}: {}", file, e.getMessage());
+            properties.clear();
+        }
+        return properties;
+    }
+
+    private void save(Properties properties) {
+        try {
+            var plain = new ByteArrayOutputStream();
+            properties.store(plain, null);
+            var iv = new byte[IV_BYTES];
+            random.nextBytes(iv);
+            var ciphertext = cipher(Cipher.ENCRYPT_MODE, key(), iv).doFinal(plain.toByteArray());
+            var sealed = ByteBuffer.allocate(Integer.BYTES + IV_BYTES + ciphertext.length)
+                    .putInt(FILE_MAGIC).put(iv).put(ciphertext);
+
+            Files.createDirectories(file.getParent());
+            var temporary = file.resolveSibling(STR."\{file.getFileName()}.tmp");
+            Files.write(temporary, sealed.array());
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            LOGGER.warn("Cannot cache the verdicts in {}: {}", file, e.getMessage());
+        }
+    }
+
+    private Cipher cipher(int mode, byte[] key, byte[] iv) throws GeneralSecurityException {
+        var cipher = Cipher.getInstance(CIPHER);
+        cipher.init(mode, new SecretKeySpec(key, "AES"), new GCMParameterSpec(TAG_BITS, iv));
+        cipher.updateAAD(appId.get().toString().getBytes(StandardCharsets.UTF_8));
+        return cipher;
+    }
+
+    private byte[] key() throws IOException {
+        if (Files.isReadable(keyFile)) {
+            var key = Files.readAllBytes(keyFile);
+            if (key.length == KEY_BYTES) return key;
+        }
+        var key = new byte[KEY_BYTES];
+        random.nextBytes(key);
+        Files.createDirectories(keyFile.getParent());
+        Files.deleteIfExists(keyFile);
+        if (keyFile.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(keyFile, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+        Files.write(keyFile, key);
+        return key;
+    }
+
+    /**
+     * @param checkedAt when the backend last gave this verdict
+     */
+    public record RegistrationVerdict(boolean registered, Instant checkedAt) {
+    }
+
+    /**
+     * @param authenticatedAt when the backend issued, or last refreshed, this session
+     */
+    public record SessionVerdict(SecurityContext context, Instant authenticatedAt) {
+    }
+
+    private static final class Holder {
+        private static final VerdictCache INSTANCE = new VerdictCache(AppConfig.APP_HOME.resolve("verdicts.bin"),
+                AppConfig.APP_HOME.resolve("verdicts.key"), SystemUtils::getAppIdentifier);
+    }
+}
@@ -9,4 +9,11 @@ public interface AuthenticationService {
     void requestAuthentication(String telephone);
 
     void authenticate(String code) throws IllegalArgumentException, SecurityException, IOException, InterruptedException;
+
+    /**
+     * Resumes the last session of this terminal from the local cache, without any network call.
+     *
+     * @return whether the user can go on without logging in again
+     */
+    boolean restoreSession();
 }
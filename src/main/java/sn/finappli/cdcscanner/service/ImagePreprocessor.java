@@ -0,0 +1,12 @@
+package sn.finappli.cdcscanner.service;
+
+import sn.finappli.cdcscanner.model.output.ScanImage;
+
+@FunctionalInterface
+public interface ImagePreprocessor {
+    ScanImage apply(ScanImage image);
+
+    static ImagePreprocessor identity() {
+        return image -> image;
+    }
+}
@@ -1,8 +1,87 @@
 package sn.finappli.cdcscanner.service;
 
+import sn.finappli.cdcscanner.model.output.ChequeReading;
+import sn.finappli.cdcscanner.model.output.PageReading;
+import sn.finappli.cdcscanner.model.output.ScanImage;
+import sn.finappli.cdcscanner.utility.ImagePages;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @FunctionalInterface
 public interface OCRReader {
     String read(File file);
+
+    default ChequeReading readCheque(File file) {
+        return ChequeReading.ofCmc(read(file));
+    }
+
+    /**
+     * Reads a page already decoded in memory. Readers that only know files go through a temporary PNG; the
+     * Tesseract reader reads the image directly.
+     */
+    default ChequeReading readCheque(ScanImage page) {
+        try {
+            var file = Files.createTempFile("cdc-scan-", ".png");
+            try {
+                ImageIO.write(page.image(), "png", file.toFile());
+                return readCheque(file.toFile());
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads page {@code index} of {@code document}, already decoded as {@code page}. Knowing where the page comes
+     * from lets a caching reader key it on the document rather than on the pixels.
+     */
+    default ChequeReading readCheque(File document, int index, ScanImage page) {
+        return readCheque(page);
+    }
+
+    default ChequeReading readCheque(BufferedImage image) {
+        return readCheque(new ScanImage(image, 0));
+    }
+
+    /**
+     * Reads the first page of an encoded image held in memory, such as the buffer handed over by a scanner driver.
+     */
+    default ChequeReading readCheque(ByteBuffer encoded) throws IOException {
+        try (var pages = ImagePages.of(encoded)) {
+            return pages.hasNext() ? readCheque(pages.next()) : ChequeReading.ofCmc("");
+        }
+    }
+
+    /**
+     * Reads every page of a multi-page stream, typically a feeder batch as a TIFF, each one as soon as it has been
+     * received and decoded: the first cheque is read before the last one has arrived. The returned stream is
+     * lazy, sequential, and must be closed.
+     */
+    default Stream<PageReading> readPages(InputStream in) throws IOException {
+        var pages = ImagePages.of(in);
+        var index = new AtomicInteger();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .map(page -> PageReading.of(index.getAndIncrement(), readCheque(page)))
+                .onClose(() -> {
+                    try {
+                        pages.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
 }
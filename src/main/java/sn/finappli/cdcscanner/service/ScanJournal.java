@@ -0,0 +1,59 @@
+package sn.finappli.cdcscanner.service;
+
+import sn.finappli.cdcscanner.model.output.ScanRecord;
+import sn.finappli.cdcscanner.model.output.ScanRegistrationOutput;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ScanJournal {
+
+    ScanRecord append(ScanRegistrationOutput scan) throws IOException;
+
+    boolean scannedSince(String cmc, LocalDateTime since) throws IOException;
+
+    /**
+     * Every scan of {@code cmc}, most recent first.
+     */
+    List<ScanRecord> findByCmc(String cmc) throws IOException;
+
+    /**
+     * Scans dated between {@code from} and {@code to} inclusive, oldest first.
+     */
+    default List<ScanRecord> findBetween(LocalDate from, LocalDate to, int skip, int limit) throws IOException {
+        return findBetween(from, to, -1, skip, limit);
+    }
+
+    /**
+     * Same as {@link #findBetween(LocalDate, LocalDate, int, int)}, resuming after the scan {@code after} of the
+     * range ({@code -1} for its start) instead of skipping every scan before it.
+     */
+    List<ScanRecord> findBetween(LocalDate from, LocalDate to, long after, int skip, int limit) throws IOException;
+
+    long countBetween(LocalDate from, LocalDate to) throws IOException;
+
+    /**
+     * Most recent scans first.
+     */
+    default List<ScanRecord> latest(int skip, int limit) throws IOException {
+        return latest(Long.MAX_VALUE, skip, limit);
+    }
+
+    /**
+     * Scans recorded before the scan {@code before}, or before the {@link Mark#end()} of a mark, most recent first.
+     * Paging from a fixed {@code before} is not shifted by the scans appended meanwhile.
+     */
+    List<ScanRecord> latest(long before, int skip, int limit) throws IOException;
+
+    long size();
+
+    /**
+     * The current end of the journal and the number of scans before it, read together.
+     */
+    Mark mark();
+
+    record Mark(long end, long count) {
+    }
+}
@@ -0,0 +1,20 @@
+package sn.finappli.cdcscanner.service;
+
+import sn.finappli.cdcscanner.model.output.ScanRegistrationOutput;
+
+import java.io.IOException;
+import java.util.UUID;
+
+public interface ScanOutbox {
+
+    /**
+     * Durably records {@code output} for upload and returns its idempotency key. Returns once the scan is on disk,
+     * whatever the state of the backend.
+     */
+    UUID enqueue(ScanRegistrationOutput output) throws IOException;
+
+    /**
+     * Number of scans waiting to be uploaded.
+     */
+    int depth();
+}
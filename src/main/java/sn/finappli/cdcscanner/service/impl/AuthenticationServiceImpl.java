@@ -1,25 +1,53 @@
 package sn.finappli.cdcscanner.service.impl;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sn.finappli.cdcscanner.model.output.AuthenticationOutput;
 import sn.finappli.cdcscanner.security.SecurityContext;
-import sn.finappli.cdcscanner.security.SecurityContextHolder;
+import sn.finappli.cdcscanner.security.TokenManager;
+import sn.finappli.cdcscanner.security.VerdictCache;
 import sn.finappli.cdcscanner.service.AuthenticationService;
+import sn.finappli.cdcscanner.utility.AppConfig;
+import sn.finappli.cdcscanner.utility.JsonCodec;
 import sn.finappli.cdcscanner.utility.SystemUtils;
 
 import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
+/**
+ * Login of the terminal user. Every session obtained from the backend is cached ({@link VerdictCache}), so that
+ * the next start resumes it without a round trip. A cached session whose token has expired is still accepted for
+ * {@code auth.offline-grace} (12 hours by default) after it was issued: scans are then queued locally, and
+ * uploaded once the user logs in again.
+ */
 public class AuthenticationServiceImpl implements AuthenticationService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuthenticationServiceImpl.class);
+
     // this is a toll url for testing purpose
-    private static final String URL = "http://localhost:8090/api/tokens/signin/scanner?uuid=vm8h-4en9-dqki-46qr-gdpj-7qh1-m2lb-m8da";
+    private static final String URL = "/api/tokens/signin/scanner?uuid=vm8h-4en9-dqki-46qr-gdpj-7qh1-m2lb-m8da";
+
+    private final BackendGateway gateway;
+    private final VerdictCache verdicts;
+    private final String refreshPath;
+    private final Duration offlineGrace;
+
+    public AuthenticationServiceImpl() {
+        this(BackendGateway.getInstance(), VerdictCache.getInstance());
+    }
+
+    public AuthenticationServiceImpl(BackendGateway gateway, VerdictCache verdicts) {
+        this.gateway = gateway;
+        this.verdicts = verdicts;
+        this.refreshPath = AppConfig.getString("auth.refresh-path", "/api/tokens/refresh/scanner");
+        this.offlineGrace = AppConfig.getDuration("auth.offline-grace", Duration.ofHours(12));
+    }
 
 
     @Override
@@ -29,33 +57,64 @@ public class AuthenticationServiceImpl implements AuthenticationService {
 
     @Override
     public void authenticate(String code) throws IllegalArgumentException, SecurityException, IOException, InterruptedException {
-        var mapper = new ObjectMapper();
-        var rootNode = mapper.createObjectNode();
-        var node = mapper.createObjectNode();
-        node.put("appId", SystemUtils.getAppIdentifier().toString());
-        node.put("code", code);
-        rootNode.set("obj1", node);
-
-        var body =  mapper.writerWithDefaultPrettyPrinter().writeValueAsString(rootNode);
-        try (HttpClient client = HttpClient.newHttpClient()) {
-            var request = HttpRequest.newBuilder()
-                    .uri(URI.create(URL))
-                    .version(HttpClient.Version.HTTP_2)
-                    .POST(HttpRequest.BodyPublishers.ofString(body))
-                    .header("Content-type", "application/json")
-                    .build();
-
-            var response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
-            if (response.statusCode() != 200) throw new SecurityException("AUTHENTICATION_FAILED");
-
-            var token = response.headers().firstValue("authorization").orElse("");
-            var secret = response.headers().firstValue("x-secret").orElse("");
-            if (isBlank(token) || isBlank(secret)) throw new IllegalArgumentException("MISSING_TOKEN");
-
-            var enc = response.headers().firstValue("www-authenticate").orElse(SystemUtils.DEFAULT_ENCODER);
-            var expiry = LocalDateTime.now().plusSeconds(SystemUtils.TOKEN_EXPIRATION);
-            SecurityContextHolder.setContext(new SecurityContext(token, secret, enc, expiry));
+        var request = gateway.request(URL)
+                .POST(JsonCodec.body(AuthenticationOutput.of(SystemUtils.getAppIdentifier(), code)))
+                .header("Content-type", "application/json")
+                .build();
+
+        var response = gateway.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) throw new SecurityException("AUTHENTICATION_FAILED");
+        var context = toContext(response);
+        verdicts.saveSession(context);
+        TokenManager.getInstance().update(context);
+    }
+
+    /**
+     * A session still valid is handed to the {@link TokenManager}, which refreshes it in the background before it
+     * expires. An expired one is only good for scanning offline, within the grace window: uploads wait in the
+     * outbox for the next login.
+     */
+    @Override
+    public boolean restoreSession() {
+        var session = verdicts.session();
+        if (session == null) return false;
+        var context = session.context();
+        if (context.isValidAt(LocalDateTime.now())) {
+            TokenManager.getInstance().update(context);
+            return true;
+        }
+        if (Instant.now().isBefore(session.authenticatedAt().plus(offlineGrace))) {
+            LOGGER.warn("Session expired at {}, working offline until the next login", context.expiry());
+            return true;
         }
+        verdicts.clearSession();
+        return false;
+    }
+
+    /**
+     * Exchanges a still valid token for a new one.
+     */
+    public SecurityContext refresh(SecurityContext current) throws IOException, InterruptedException {
+        var request = gateway.request(refreshPath)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .header("Cookie", STR."access_token=\{current.token()}")
+                .build();
+
+        var response = gateway.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) throw new SecurityException("TOKEN_REFRESH_FAILED");
+        var context = toContext(response);
+        verdicts.saveSession(context);
+        return context;
+    }
+
+    private static SecurityContext toContext(HttpResponse<?> response) {
+        var token = response.headers().firstValue("authorization").orElse("");
+        var secret = response.headers().firstValue("x-secret").orElse("");
+        if (isBlank(token) || isBlank(secret)) throw new IllegalArgumentException("MISSING_TOKEN");
+
+        var enc = response.headers().firstValue("www-authenticate").orElse(SystemUtils.DEFAULT_ENCODER);
+        var expiry = LocalDateTime.now().plusSeconds(SystemUtils.TOKEN_EXPIRATION);
+        return new SecurityContext(token, secret, enc, expiry);
     }
 
 }
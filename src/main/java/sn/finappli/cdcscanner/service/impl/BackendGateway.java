@@ -0,0 +1,119 @@
+package sn.finappli.cdcscanner.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sn.finappli.cdcscanner.utility.AppConfig;
+import sn.finappli.cdcscanner.utility.LatencyRecorder;
+import sn.finappli.cdcscanner.utility.Metrics;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Single entry point for every HTTP call of the application. It owns one long-lived {@link HttpClient}, so
+ * connections (and HTTP/2 streams) to the backend are reused across calls instead of being set up per request,
+ * and it keeps a latency histogram per endpoint.
+ */
+public final class BackendGateway implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BackendGateway.class);
+
+    private static final String KEEP_ALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+
+    private final URI baseUri;
+    private final Duration requestTimeout;
+    private final ExecutorService executor;
+    private final HttpClient client;
+    private final Map<String, LatencyRecorder> latencies = new ConcurrentHashMap<>();
+
+    public BackendGateway(URI baseUri, Duration connectTimeout, Duration requestTimeout) {
+        this.baseUri = baseUri;
+        this.requestTimeout = requestTimeout;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+    }
+
+    public static BackendGateway getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * A request builder for {@code path} on the backend, with the default timeout already set.
+     */
+    public HttpRequest.Builder request(String path) {
+        return request(baseUri.resolve(path));
+    }
+
+    public HttpRequest.Builder request(URI uri) {
+        return HttpRequest.newBuilder(uri)
+                .version(HttpClient.Version.HTTP_2)
+                .timeout(requestTimeout);
+    }
+
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException, InterruptedException {
+        var latency = latencyOf(request);
+        var start = System.nanoTime();
+        try {
+            return client.send(request, handler);
+        } finally {
+            latency.recordSince(start);
+        }
+    }
+
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> handler) {
+        var latency = latencyOf(request);
+        var start = System.nanoTime();
+        return client.sendAsync(request, handler).whenComplete((_, _) -> latency.recordSince(start));
+    }
+
+    public URI getBaseUri() {
+        return baseUri;
+    }
+
+    public Map<String, LatencyRecorder> getLatencies() {
+        return Map.copyOf(latencies);
+    }
+
+    private LatencyRecorder latencyOf(HttpRequest request) {
+        var uri = request.uri();
+        var endpoint = uri.getHost().equals(baseUri.getHost()) && uri.getPort() == baseUri.getPort()
+                ? STR."\{request.method()} \{uri.getPath()}"
+                : STR."\{request.method()} \{uri.getHost()}\{uri.getPath()}";
+        return latencies.computeIfAbsent(endpoint, _ -> Metrics.latency(STR."http.\{endpoint}"));
+    }
+
+    @Override
+    public void close() {
+        client.shutdown();
+        executor.shutdown();
+        latencies.values().forEach(latency -> LOGGER.info("{}", latency.snapshot()));
+    }
+
+    private static final class Holder {
+        private static final BackendGateway INSTANCE = create();
+
+        private static BackendGateway create() {
+            if (System.getProperty(KEEP_ALIVE_PROPERTY) == null) {
+                System.setProperty(KEEP_ALIVE_PROPERTY, AppConfig.getString("backend.keepalive-timeout", "300"));
+            }
+            return new BackendGateway(
+                    URI.create(AppConfig.getString("backend.url", "http://localhost:8090")),
+                    AppConfig.getDuration("backend.connect-timeout", Duration.ofSeconds(5)),
+                    AppConfig.getDuration("backend.request-timeout", Duration.ofSeconds(30)));
+        }
+    }
+}
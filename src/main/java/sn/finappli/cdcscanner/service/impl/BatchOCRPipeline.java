@@ -0,0 +1,269 @@
+package sn.finappli.cdcscanner.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sn.finappli.cdcscanner.model.output.OCRBatchResult;
+import sn.finappli.cdcscanner.model.output.PageReading;
+import sn.finappli.cdcscanner.model.output.ScanImage;
+import sn.finappli.cdcscanner.service.OCRReader;
+import sn.finappli.cdcscanner.utility.ImagePages;
+import sn.finappli.cdcscanner.utility.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Fans a batch of scanned cheques, or the pages of one document, out over a pool of OCR workers, either its own
+ * fixed pool or one it shares with the rest of the application. At most {@code maxInFlight} images are
+ * submitted ahead of the consumer, so a slow consumer throttles the workers instead of piling up results,
+ * and results come back in the order of the input.
+ */
+public class BatchOCRPipeline implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchOCRPipeline.class);
+
+    private final OCRReader reader;
+    private final int maxInFlight;
+    private final ExecutorService workers;
+    private final boolean ownsWorkers;
+
+    /**
+     * Reads through the cached OCR reader on {@code workers}, which are left running on {@link #close()}.
+     */
+    public BatchOCRPipeline(ExecutorService workers) {
+        this(CachingOCRReader.getInstance(), workers, TesseractEnginePool.getInstance().getSize() * 2);
+    }
+
+    public BatchOCRPipeline(OCRReader reader, int parallelism) {
+        this(reader, parallelism, parallelism * 2);
+    }
+
+    public BatchOCRPipeline(OCRReader reader, int parallelism, int maxInFlight) {
+        if (parallelism < 1 || maxInFlight < parallelism) throw new IllegalArgumentException("INVALID_BATCH_SIZING");
+        this.reader = reader;
+        this.maxInFlight = maxInFlight;
+        this.workers = Executors.newFixedThreadPool(parallelism, Thread.ofPlatform().daemon().name("ocr-batch-", 0).factory());
+        this.ownsWorkers = true;
+    }
+
+    public BatchOCRPipeline(OCRReader reader, ExecutorService workers, int maxInFlight) {
+        if (maxInFlight < 1) throw new IllegalArgumentException("INVALID_BATCH_SIZING");
+        this.reader = reader;
+        this.maxInFlight = maxInFlight;
+        this.workers = workers;
+        this.ownsWorkers = false;
+    }
+
+    /**
+     * Processes every supported image of {@code folder}, in file name order.
+     */
+    public Stream<OCRBatchResult> process(Path folder) throws IOException {
+        try (var files = Files.list(folder)) {
+            return process(files.filter(Files::isRegularFile)
+                    .filter(Utils::isScannedImage)
+                    .sorted(Comparator.comparing(Path::getFileName))
+                    .map(Path::toFile)
+                    .toList());
+        }
+    }
+
+    /**
+     * Lazily processes {@code files}; nothing is submitted until the stream is consumed. Closing the stream
+     * cancels whatever is still pending.
+     */
+    public Stream<OCRBatchResult> process(List<File> files) {
+        var results = new OrderedResults(files);
+        return StreamSupport.stream(Spliterators.spliterator(results, files.size(), Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(results::cancel);
+    }
+
+    /**
+     * Lazily reads every page of a multi-page document, such as the TIFF or PDF of a whole feeder stack. Pages are
+     * decoded one at a time on the consuming thread and OCR'd by the workers, with at most {@code maxInFlight}
+     * decoded pages in memory whatever the length of the document. A page that cannot be decoded or read comes
+     * back as a failure and the next pages are still read. Closing the stream cancels whatever is still pending
+     * and closes the document.
+     */
+    public Stream<PageReading> pages(File document) throws IOException {
+        var pages = new OrderedPages(document, ImagePages.of(document.toPath()));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(pages::close);
+    }
+
+    private OCRBatchResult scan(int index, File file) {
+        var start = System.nanoTime();
+        try {
+            if (!file.isFile()) throw new IllegalArgumentException(STR."FILE_NOT_FOUND: \{file}");
+            return OCRBatchResult.of(index, file, reader.read(file), Duration.ofNanos(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            LOGGER.error(e.getMessage(), e);
+            return OCRBatchResult.failure(index, file, e, Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    private PageReading readPage(File document, int index, ScanImage page) {
+        try {
+            return PageReading.of(index, reader.readCheque(document, index, page));
+        } catch (RuntimeException e) {
+            LOGGER.error(e.getMessage(), e);
+            return PageReading.failure(index, e);
+        }
+    }
+
+    /**
+     * Stops the pipeline's own workers; shared ones keep running, and what is still pending is cancelled when the
+     * streams are closed.
+     */
+    @Override
+    public void close() {
+        if (ownsWorkers) workers.shutdownNow();
+    }
+
+    private final class OrderedResults implements Iterator<OCRBatchResult> {
+
+        private final List<File> files;
+        private final ArrayDeque<Future<OCRBatchResult>> window = new ArrayDeque<>();
+        private int submitted;
+        private int consumed;
+
+        private OrderedResults(List<File> files) {
+            this.files = files;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return consumed < files.size();
+        }
+
+        @Override
+        public OCRBatchResult next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            while (submitted < files.size() && window.size() < maxInFlight) {
+                var index = submitted++;
+                var file = files.get(index);
+                window.add(workers.submit(() -> scan(index, file)));
+            }
+            var index = consumed++;
+            var future = window.poll();
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+                throw new CancellationException("BATCH_INTERRUPTED");
+            } catch (ExecutionException e) {
+                return OCRBatchResult.failure(index, files.get(index), e.getCause(), Duration.ZERO);
+            }
+        }
+
+        private void cancel() {
+            Future<OCRBatchResult> future;
+            while ((future = window.poll()) != null) future.cancel(true);
+            consumed = files.size();
+        }
+    }
+
+    private final class OrderedPages implements Iterator<PageReading> {
+
+        private final File document;
+        private final ImagePages pages;
+        private final int size;
+        private final ArrayDeque<PendingPage> window = new ArrayDeque<>();
+        private int decoded;
+        private boolean ended;
+
+        private OrderedPages(File document, ImagePages pages) {
+            this.document = document;
+            this.pages = pages;
+            this.size = countPages();
+        }
+
+        /**
+         * The page count, or {@code -1} when it is unknown: a corrupt page then ends the document, as there is no
+         * telling whether the pages after it can still be found.
+         */
+        private int countPages() {
+            try {
+                return pages.size();
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Cannot count the pages of {}: {}", document.getName(), e.getMessage());
+                return -1;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            fill();
+            return !window.isEmpty();
+        }
+
+        @Override
+        public PageReading next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            var pending = window.poll();
+            try {
+                return pending.future().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new CancellationException("BATCH_INTERRUPTED");
+            } catch (ExecutionException e) {
+                return PageReading.failure(pending.index(), e.getCause());
+            }
+        }
+
+        private void fill() {
+            while (!ended && window.size() < maxInFlight) {
+                var index = decoded++;
+                if (size >= 0 && index >= size) {
+                    ended = true;
+                    return;
+                }
+                try {
+                    var page = pages.read(index);
+                    if (page == null) {
+                        ended = true;
+                        return;
+                    }
+                    window.add(new PendingPage(index, workers.submit(() -> readPage(document, index, page))));
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warn("Page {} of {} cannot be decoded: {}", index, document.getName(), e.getMessage());
+                    window.add(new PendingPage(index, CompletableFuture.completedFuture(PageReading.failure(index, e))));
+                    if (size < 0) ended = true;
+                }
+            }
+        }
+
+        private void close() {
+            PendingPage pending;
+            while ((pending = window.poll()) != null) pending.future().cancel(true);
+            ended = true;
+            try {
+                pages.close();
+            } catch (IOException e) {
+                LOGGER.warn("Cannot close {}: {}", document.getName(), e.getMessage());
+            }
+        }
+    }
+
+    private record PendingPage(int index, Future<PageReading> future) {
+    }
+}
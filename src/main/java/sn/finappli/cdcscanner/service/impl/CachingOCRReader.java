@@ -0,0 +1,373 @@
+package sn.finappli.cdcscanner.service.impl;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sn.finappli.cdcscanner.model.ChequeTemplate;
+import sn.finappli.cdcscanner.model.output.ChequeReading;
+import sn.finappli.cdcscanner.model.output.ScanImage;
+import sn.finappli.cdcscanner.service.OCRReader;
+import sn.finappli.cdcscanner.utility.AppConfig;
+import sn.finappli.cdcscanner.utility.ContentHash;
+import sn.finappli.cdcscanner.utility.JsonCodec;
+import sn.finappli.cdcscanner.utility.Metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Content-addressed cache in front of an {@link OCRReader}: a cheque scanned twice, or a batch submitted again,
+ * is only OCR'd once.
+ * <p>
+ * Readings are keyed by the SHA-256 of the image bytes together with the configuration of the reader (engine,
+ * languages, template, format of the entries), kept in an in-memory LRU and in a disk tier
+ * ({@code <directory>/<2 first hex>/<key>.json}) evicted least-recently-used first once it exceeds
+ * {@code maxDiskBytes}. A reading made under another configuration is therefore never served; it simply ages out
+ * of the disk tier. Without a directory, readings are only kept in memory. The hash of a file is itself memoised
+ * on (path, size, mtime), so resubmitting the very same file costs neither OCR nor hashing. Failed readings (no
+ * CMC) are never cached.
+ */
+public class CachingOCRReader implements OCRReader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingOCRReader.class);
+
+    /**
+     * Version of the entries; bumped whenever {@link ChequeReading} changes, so that older entries are not read.
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    private final OCRReader delegate;
+    private final String fingerprint;
+    private final @Nullable Path directory;
+    private final long maxDiskBytes;
+    private final Map<String, ChequeReading> memory;
+    private final Map<FileKey, String> hashes;
+    private final Map<String, Long> disk = new LinkedHashMap<>(256, 0.75f, true);
+    private long diskBytes;
+
+    private final LongAdder memoryHits = Metrics.counter("ocr.cache.memory-hits");
+    private final LongAdder diskHits = Metrics.counter("ocr.cache.disk-hits");
+    private final LongAdder misses = Metrics.counter("ocr.cache.misses");
+
+    /**
+     * @param configuration what, besides the image, the readings of {@code delegate} depend on
+     * @param directory     the disk tier, or {@code null} to keep readings in memory only
+     */
+    public CachingOCRReader(OCRReader delegate, String configuration, @Nullable Path directory, int memoryEntries,
+                            long maxDiskBytes) throws IOException {
+        this.delegate = delegate;
+        this.fingerprint = ContentHash.sha256(STR."v\{FORMAT_VERSION}|\{configuration}".getBytes(StandardCharsets.UTF_8));
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.memory = lru(memoryEntries);
+        this.hashes = lru(memoryEntries * 4);
+        if (directory != null) {
+            Files.createDirectories(directory);
+            loadDiskIndex(directory);
+        }
+    }
+
+    public CachingOCRReader(OCRReader delegate, String configuration, boolean persistent) throws IOException {
+        this(delegate, configuration, persistent ? AppConfig.APP_HOME.resolve("ocr-cache") : null,
+                AppConfig.getInt("ocr.cache.memory-entries", 1024),
+                AppConfig.getInt("ocr.cache.disk-size-mb", 64) * 1024L * 1024L);
+    }
+
+    public static CachingOCRReader getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    @Override
+    public String read(File file) {
+        return readCheque(file).cmc();
+    }
+
+    @Override
+    public ChequeReading readCheque(File file) {
+        String hash;
+        try {
+            hash = hashOf(file.toPath());
+        } catch (IOException e) {
+            LOGGER.warn("Cannot hash {}, reading it uncached: {}", file, e.getMessage());
+            misses.increment();
+            return delegate.readCheque(file);
+        }
+        return cached(hash, () -> delegate.readCheque(file));
+    }
+
+    /**
+     * Encoded images are cached like files, by the hash of their bytes.
+     */
+    @Override
+    public ChequeReading readCheque(ByteBuffer encoded) throws IOException {
+        var hash = ContentHash.sha256(encoded);
+        try {
+            return cached(hash, () -> {
+                try {
+                    return delegate.readCheque(encoded.duplicate());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Decoded pages have no cheap identity, they are read uncached.
+     */
+    @Override
+    public ChequeReading readCheque(ScanImage page) {
+        misses.increment();
+        return delegate.readCheque(page);
+    }
+
+    /**
+     * Pages of a document are cached by the hash of the document and their index, so a multi-page scan submitted
+     * again is not OCR'd again.
+     */
+    @Override
+    public ChequeReading readCheque(File document, int index, ScanImage page) {
+        String hash;
+        try {
+            hash = hashOf(document.toPath());
+        } catch (IOException e) {
+            LOGGER.warn("Cannot hash {}, reading its page {} uncached: {}", document, index + 1, e.getMessage());
+            misses.increment();
+            return delegate.readCheque(document, index, page);
+        }
+        return cached(STR."\{hash}#\{index}", () -> delegate.readCheque(document, index, page));
+    }
+
+    private ChequeReading cached(String contentHash, Supplier<ChequeReading> read) {
+        var hash = ContentHash.sha256(STR."\{fingerprint}|\{contentHash}".getBytes(StandardCharsets.UTF_8));
+        var reading = fromMemory(hash);
+        if (reading != null) {
+            memoryHits.increment();
+            return reading;
+        }
+        reading = fromDisk(hash);
+        if (reading != null) {
+            diskHits.increment();
+            synchronized (memory) {
+                memory.put(hash, reading);
+            }
+            return reading;
+        }
+
+        misses.increment();
+        reading = read.get();
+        if (!reading.cmc().isEmpty()) {
+            synchronized (memory) {
+                memory.put(hash, reading);
+            }
+            toDisk(hash, reading);
+        }
+        return reading;
+    }
+
+    private String hashOf(Path file) throws IOException {
+        var key = new FileKey(file.toAbsolutePath(), Files.size(file), Files.getLastModifiedTime(file).toMillis());
+        synchronized (hashes) {
+            var hash = hashes.get(key);
+            if (hash != null) return hash;
+        }
+        var hash = ContentHash.sha256(file);
+        synchronized (hashes) {
+            hashes.put(key, hash);
+        }
+        return hash;
+    }
+
+    private @Nullable ChequeReading fromMemory(String hash) {
+        synchronized (memory) {
+            return memory.get(hash);
+        }
+    }
+
+    private @Nullable ChequeReading fromDisk(String hash) {
+        if (directory == null) return null;
+        synchronized (disk) {
+            if (disk.get(hash) == null) return null;
+        }
+        var entry = entryOf(hash);
+        try {
+            var reading = JsonCodec.fromJson(Files.readAllBytes(entry), ChequeReading.class);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return reading;
+        } catch (IOException e) {
+            LOGGER.warn("Dropping unreadable OCR cache entry {}: {}", hash, e.getMessage());
+            synchronized (disk) {
+                var size = disk.remove(hash);
+                if (size != null) diskBytes -= size;
+            }
+            return null;
+        }
+    }
+
+    private void toDisk(String hash, ChequeReading reading) {
+        if (directory == null) return;
+        var entry = entryOf(hash);
+        try {
+            var bytes = JsonCodec.toBytes(reading);
+            Files.createDirectories(entry.getParent());
+            var temporary = entry.resolveSibling(STR."\{hash}.tmp");
+            Files.write(temporary, bytes);
+            Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            synchronized (disk) {
+                var previous = disk.put(hash, (long) bytes.length);
+                diskBytes += bytes.length - (previous == null ? 0 : previous);
+                evict();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Cannot write OCR cache entry {}: {}", hash, e.getMessage());
+        }
+    }
+
+    /**
+     * Drops the least recently used disk entries until the tier fits its budget. Called with the disk lock held.
+     */
+    private void evict() {
+        var iterator = disk.entrySet().iterator();
+        while (diskBytes > maxDiskBytes && iterator.hasNext()) {
+            var eldest = iterator.next();
+            iterator.remove();
+            diskBytes -= eldest.getValue();
+            try {
+                Files.deleteIfExists(entryOf(eldest.getKey()));
+            } catch (IOException e) {
+                LOGGER.warn(e.getMessage(), e);
+            }
+        }
+    }
+
+    private void loadDiskIndex(Path directory) throws IOException {
+        try (var files = Files.walk(directory, 2)) {
+            files.filter(file -> file.getFileName().toString().endsWith(".json"))
+                    .map(CachingOCRReader::stat)
+                    .sorted(Comparator.comparingLong(DiskEntry::accessed))
+                    .forEach(entry -> {
+                        disk.put(entry.hash(), entry.size());
+                        diskBytes += entry.size();
+                    });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        synchronized (disk) {
+            evict();
+        }
+        LOGGER.info("OCR cache: {} entries on disk ({} KB)", disk.size(), diskBytes / 1024);
+    }
+
+    private static DiskEntry stat(Path file) {
+        try {
+            var name = file.getFileName().toString();
+            return new DiskEntry(name.substring(0, name.length() - ".json".length()), Files.size(file),
+                    Files.getLastModifiedTime(file).toMillis());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path entryOf(String hash) {
+        return Objects.requireNonNull(directory).resolve(hash.substring(0, 2)).resolve(STR."\{hash}.json");
+    }
+
+    private static <K, V> Map<K, V> lru(int capacity) {
+        return new LinkedHashMap<>(Math.min(capacity, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.sum();
+    }
+
+    public long getDiskHits() {
+        return diskHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRatio() {
+        var hits = memoryHits.sum() + diskHits.sum();
+        var total = hits + misses.sum();
+        return total == 0 ? 0 : hits / (double) total;
+    }
+
+    public long getDiskBytes() {
+        synchronized (disk) {
+            return diskBytes;
+        }
+    }
+
+    private record FileKey(Path path, long size, long modified) {
+    }
+
+    private record DiskEntry(String hash, long size, long accessed) {
+    }
+
+    private static final class Holder {
+        private static final CachingOCRReader INSTANCE = create();
+
+        private static CachingOCRReader create() {
+            var stub = "stub".equals(AppConfig.getString("ocr.engine", "tesseract"));
+            try {
+                // readings of the stub are made up, they are not worth keeping across runs
+                return new CachingOCRReader(engine(stub), configuration(stub), !stub);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * The settings the readings depend on. The template is described region by region, in field order.
+         */
+        private static String configuration(boolean stub) {
+            var template = ChequeTemplate.getDefault();
+            var regions = Arrays.stream(ChequeTemplate.Field.values())
+                    .map(field -> STR."\{field}=\{template.region(field)}")
+                    .collect(Collectors.joining(","));
+            return STR."engine=\{stub ? "stub" : "tesseract"}|language=\{AppConfig.getString("ocr.language", "fra")}"
+                    + STR."|fallback=\{AppConfig.get("ocr.fallback.language")}"
+                    + STR."|confidence=\{AppConfig.getString("ocr.confidence.min", "0.7")}"
+                    + STR."|template=\{template.name()}:\{regions}";
+        }
+
+        /**
+         * Tesseract, or the stub with {@code ocr.engine=stub}, backed by a second Tesseract language model when
+         * {@code ocr.fallback.language} is set.
+         */
+        private static OCRReader engine(boolean stub) {
+            OCRReader primary = stub ? StubOCRReader.fromConfig() : new TesseractOCRReaderImpl();
+            var fallbackLanguage = AppConfig.get("ocr.fallback.language");
+            if (fallbackLanguage == null) return primary;
+            var secondary = new TesseractOCRReaderImpl(
+                    TesseractEnginePool.forLanguage(fallbackLanguage, AppConfig.getInt("ocr.fallback.pool-size", 2)),
+                    ChequeTemplate.getDefault(), PreprocessingPipeline.getInstance());
+            return new FallbackOCRReader(primary, secondary,
+                    Double.parseDouble(AppConfig.getString("ocr.confidence.min", "0.7")));
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package sn.finappli.cdcscanner.service.impl;
+
+import org.jetbrains.annotations.NotNull;
+import sn.finappli.cdcscanner.model.output.CheckNumberMatch;
+import sn.finappli.cdcscanner.model.output.CheckNumberMatch.Format;
+
+/**
+ * Finds the cheque number in OCR text in a single pass, without regex and without allocating anything
+ * but the returned match.
+ * <ul>
+ *     <li>a CMC7 line is three digit groups of 7, 12 and 12 on the same line, whatever the separators.
+ *     Its last two groups carry a RIB key, so they must form a multiple of 97;</li>
+ *     <li>otherwise the first whitespace-delimited token of exactly 7 digits is used, with a lower confidence
+ *     when the text holds several different ones.</li>
+ * </ul>
+ */
+public final class CheckNumberExtractor {
+
+    private static final int CHEQUE_NUMBER_LENGTH = 7;
+    private static final int ZONE_LENGTH = 12;
+
+    private static final double VALID_LINE_CONFIDENCE = 0.99;
+    private static final double TOKEN_CONFIDENCE = 0.8;
+    private static final double INVALID_KEY_CONFIDENCE = 0.6;
+    private static final double AMBIGUOUS_TOKEN_CONFIDENCE = 0.5;
+
+    public CheckNumberMatch extract(@NotNull CharSequence text) {
+        var length = text.length();
+
+        // CMC7 line state
+        var groups = 0;
+        var groupLength = 0;
+        var firstGroupStart = -1;
+        var secondGroupLength = 0;
+        var thirdGroupLength = 0;
+        var lastDigit = -1;
+        var key = 0;
+        var validLine = true;
+
+        // 7-digit token state
+        var tokenStart = -1;
+        var tokenDigits = true;
+        var firstToken = -1;
+        var ambiguous = false;
+
+        var bestStart = -1;
+        var bestEnd = -1;
+        var bestValueStart = -1;
+        var bestFormat = Format.NONE;
+        var bestConfidence = 0.0;
+
+        for (int i = 0; i <= length; i++) {
+            var c = i < length ? text.charAt(i) : '\n';
+            var digit = c >= '0' && c <= '9';
+
+            if (digit) {
+                if (groupLength == 0) {
+                    groups++;
+                    if (groups == 1) firstGroupStart = i;
+                    if (groups > 3) validLine = false;
+                }
+                groupLength++;
+                if (groups == 1 && groupLength > CHEQUE_NUMBER_LENGTH) validLine = false;
+                if (groups == 2) secondGroupLength = groupLength;
+                if (groups == 3) thirdGroupLength = groupLength;
+                if (groups >= 2) key = (key * 10 + (c - '0')) % 97;
+                lastDigit = i;
+                if (tokenStart < 0) tokenStart = i;
+                continue;
+            }
+            if (groupLength > 0 && groups == 1 && groupLength != CHEQUE_NUMBER_LENGTH) validLine = false;
+            groupLength = 0;
+
+            if (!isWhitespace(c)) {
+                if (tokenStart < 0) tokenStart = i;
+                tokenDigits = false;
+                continue;
+            }
+
+            if (tokenStart >= 0 && tokenDigits && i - tokenStart == CHEQUE_NUMBER_LENGTH) {
+                if (firstToken < 0) firstToken = tokenStart;
+                else if (!ambiguous && !sameDigits(text, firstToken, tokenStart)) ambiguous = true;
+            }
+            tokenStart = -1;
+            tokenDigits = true;
+
+            if (c == '\n' || c == '\r') {
+                if (validLine && groups == 3 && secondGroupLength == ZONE_LENGTH && thirdGroupLength == ZONE_LENGTH) {
+                    var confidence = key == 0 ? VALID_LINE_CONFIDENCE : INVALID_KEY_CONFIDENCE;
+                    if (confidence > bestConfidence) {
+                        bestConfidence = confidence;
+                        bestFormat = Format.CMC7_LINE;
+                        bestValueStart = firstGroupStart;
+                        bestStart = firstGroupStart;
+                        bestEnd = lastDigit + 1;
+                    }
+                }
+                groups = 0;
+                firstGroupStart = -1;
+                secondGroupLength = 0;
+                thirdGroupLength = 0;
+                key = 0;
+                validLine = true;
+            }
+        }
+
+        if (firstToken >= 0) {
+            var confidence = ambiguous ? AMBIGUOUS_TOKEN_CONFIDENCE : TOKEN_CONFIDENCE;
+            if (confidence > bestConfidence) {
+                bestConfidence = confidence;
+                bestFormat = Format.CMC_DIGITS;
+                bestValueStart = firstToken;
+                bestStart = firstToken;
+                bestEnd = firstToken + CHEQUE_NUMBER_LENGTH;
+            }
+        }
+
+        if (bestFormat == Format.NONE) return CheckNumberMatch.NONE;
+        var value = text.subSequence(bestValueStart, bestValueStart + CHEQUE_NUMBER_LENGTH).toString();
+        return new CheckNumberMatch(value, bestFormat, bestStart, bestEnd, bestConfidence);
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean sameDigits(CharSequence text, int first, int second) {
+        for (int i = 0; i < CHEQUE_NUMBER_LENGTH; i++) {
+            if (text.charAt(first + i) != text.charAt(second + i)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,134 @@
+package sn.finappli.cdcscanner.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sn.finappli.cdcscanner.model.output.DeviceEvent;
+import sn.finappli.cdcscanner.utility.AppConfig;
+
+import javax.print.PrintService;
+import javax.print.PrintServiceLookup;
+import javax.print.attribute.PrintServiceAttributeSet;
+import javax.print.event.PrintServiceAttributeListener;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Watches the connected devices and publishes only what changed.
+ * <p>
+ * {@link PrintServiceLookup} offers no notification when a device is plugged in or out, so the watcher polls it:
+ * every {@code minInterval} right after a change, then backing off up to {@code maxInterval} while nothing moves.
+ * Attribute changes of a known device (state, queue...) are pushed by the device itself through a
+ * {@link PrintServiceAttributeListener} when the driver supports it.
+ */
+public class DeviceWatcher implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeviceWatcher.class);
+
+    private final Supplier<PrintService[]> lookup;
+    private final PrinterPublisher publisher;
+    private final Duration minInterval;
+    private final Duration maxInterval;
+    private final Map<String, Known> devices = new HashMap<>();
+    private final PrintServiceAttributeListener attributeListener = event -> onAttributesChanged(event.getPrintService());
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("device-watcher").factory());
+
+    private Duration interval;
+    private ScheduledFuture<?> next;
+
+    public DeviceWatcher(Supplier<PrintService[]> lookup, PrinterPublisher publisher, Duration minInterval, Duration maxInterval) {
+        this.lookup = lookup;
+        this.publisher = publisher;
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.interval = minInterval;
+    }
+
+    public static DeviceWatcher systemPrinters(PrinterPublisher publisher) {
+        return new DeviceWatcher(() -> PrintServiceLookup.lookupPrintServices(null, null), publisher,
+                AppConfig.getDuration("devices.poll.min-interval", Duration.ofSeconds(2)),
+                AppConfig.getDuration("devices.poll.max-interval", Duration.ofSeconds(30)));
+    }
+
+    public synchronized void start() {
+        if (next == null) next = scheduler.schedule(this::tick, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Compares the current devices with the last known ones and publishes the differences.
+     */
+    public synchronized List<DeviceEvent> poll() {
+        var events = new ArrayList<DeviceEvent>();
+        var seen = new HashMap<String, PrintService>();
+        for (var service : lookup.get()) seen.put(service.getName(), service);
+
+        var iterator = devices.entrySet().iterator();
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            if (seen.containsKey(entry.getKey())) continue;
+            iterator.remove();
+            entry.getValue().service().removePrintServiceAttributeListener(attributeListener);
+            events.add(new DeviceEvent(DeviceEvent.Type.REMOVED, entry.getValue().service()));
+        }
+        for (var service : seen.values()) {
+            var known = devices.get(service.getName());
+            var attributes = service.getAttributes();
+            if (known == null) {
+                service.addPrintServiceAttributeListener(attributeListener);
+                events.add(new DeviceEvent(DeviceEvent.Type.ADDED, service));
+            } else if (!Objects.equals(known.attributes(), attributes)) {
+                events.add(new DeviceEvent(DeviceEvent.Type.CHANGED, service));
+            }
+            devices.put(service.getName(), new Known(service, attributes));
+        }
+        events.forEach(publisher::publish);
+        return events;
+    }
+
+    private synchronized void onAttributesChanged(PrintService service) {
+        var known = devices.get(service.getName());
+        if (known == null) return;
+        var attributes = service.getAttributes();
+        if (Objects.equals(known.attributes(), attributes)) return;
+        devices.put(service.getName(), new Known(service, attributes));
+        publisher.publish(new DeviceEvent(DeviceEvent.Type.CHANGED, service));
+    }
+
+    private void tick() {
+        try {
+            var changed = !poll().isEmpty();
+            synchronized (this) {
+                interval = changed ? minInterval : min(interval.multipliedBy(2), maxInterval);
+                if (!scheduler.isShutdown()) next = scheduler.schedule(this::tick, interval.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error(e.getMessage(), e);
+            synchronized (this) {
+                if (!scheduler.isShutdown()) next = scheduler.schedule(this::tick, maxInterval.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    @Override
+    public synchronized void close() {
+        scheduler.shutdownNow();
+        devices.values().forEach(known -> known.service().removePrintServiceAttributeListener(attributeListener));
+        devices.clear();
+    }
+
+    private record Known(PrintService service, PrintServiceAttributeSet attributes) {
+    }
+}
@@ -0,0 +1,69 @@
+package sn.finappli.cdcscanner.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sn.finappli.cdcscanner.model.output.ChequeReading;
+import sn.finappli.cdcscanner.model.output.ScanImage;
+import sn.finappli.cdcscanner.service.OCRReader;
+import sn.finappli.cdcscanner.utility.Metrics;
+
+import java.io.File;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Chains two OCR engines. The secondary one is only asked when the primary one is not confident enough in the
+ * CMC it read, and the more confident of the two readings wins.
+ */
+public class FallbackOCRReader implements OCRReader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FallbackOCRReader.class);
+
+    private final OCRReader primary;
+    private final OCRReader secondary;
+    private final double minConfidence;
+
+    private final LongAdder fallbacks = Metrics.counter("ocr.fallback");
+    private final LongAdder secondaryWins = Metrics.counter("ocr.fallback.wins");
+
+    public FallbackOCRReader(OCRReader primary, OCRReader secondary, double minConfidence) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.minConfidence = minConfidence;
+    }
+
+    @Override
+    public String read(File file) {
+        return readCheque(file).cmc();
+    }
+
+    @Override
+    public ChequeReading readCheque(File file) {
+        return readCheque(file.getName(), primary.readCheque(file), () -> secondary.readCheque(file));
+    }
+
+    @Override
+    public ChequeReading readCheque(ScanImage page) {
+        return readCheque("page", primary.readCheque(page), () -> secondary.readCheque(page));
+    }
+
+    private ChequeReading readCheque(String name, ChequeReading reading, Supplier<ChequeReading> secondReading) {
+        if (reading.confidence() >= minConfidence) return reading;
+
+        fallbacks.increment();
+        var second = secondReading.get();
+        LOGGER.debug("Second reading of {}: {} ({}) against {} ({})", name, second.cmc(), second.confidence(),
+                reading.cmc(), reading.confidence());
+        if (second.confidence() <= reading.confidence()) return reading;
+        secondaryWins.increment();
+        return second;
+    }
+
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    public long getSecondaryWinCount() {
+        return secondaryWins.sum();
+    }
+}
@@ -0,0 +1,596 @@
+package sn.finappli.cdcscanner.service.impl;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sn.finappli.cdcscanner.model.output.ScanRecord;
+import sn.finappli.cdcscanner.model.output.ScanRegistrationOutput;
+import sn.finappli.cdcscanner.service.ScanJournal;
+import sn.finappli.cdcscanner.utility.AppConfig;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Local, append-only journal of every scan of the terminal.
+ * <p>
+ * {@code scans.dat} is a sequence of {@code [length][crc32][payload][length]} records; the trailing length lets
+ * the journal be read backwards, newest first. Each record also carries the position of the previous scan of the
+ * same CMC, so that the CMC index only has to map a CMC to its latest scan: a primitive open-addressing table of
+ * 16 bytes per distinct cheque, which keeps millions of records in a few tens of megabytes. The date index maps
+ * each day to its first record, records being appended in date order, and to its number of scans, so that
+ * counting a range reads nothing from disk.
+ * <p>
+ * Both indexes are saved to {@code index.bin} on close and after compaction; on open, only the records appended
+ * after the last save are replayed, and a torn last record (crash while appending) is cut off.
+ * {@link #compact(LocalDate)} rewrites the journal without the scans older than a retention date.
+ */
+public final class FileScanJournal implements ScanJournal, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileScanJournal.class);
+
+    private static final long INDEX_MAGIC = 0x5343414E4A524E32L;
+    private static final int HEADER = 8;
+    private static final int TRAILER = 4;
+    private static final int MAX_PAYLOAD = 64 * 1024;
+    private static final long NONE = -1;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final Path dataFile;
+    private final Path indexFile;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private FileChannel channel;
+    private long end;
+    private long count;
+    private LongLongMap latestByCmc = new LongLongMap(1024);
+    private NavigableMap<Long, Long> firstOfDay = new TreeMap<>();
+    private NavigableMap<Long, Long> countOfDay = new TreeMap<>();
+
+    public FileScanJournal(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.dataFile = directory.resolve("scans.dat");
+        this.indexFile = directory.resolve("index.bin");
+        this.channel = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        var start = System.nanoTime();
+        var covered = loadIndex();
+        replay(covered);
+        LOGGER.info("Scan journal opened: {} scans in {} ms", count, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public static FileScanJournal getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    @Override
+    public ScanRecord append(ScanRegistrationOutput scan) throws IOException {
+        lock.writeLock().lock();
+        try {
+            return doAppend(scan);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private ScanRecord doAppend(ScanRegistrationOutput scan) throws IOException {
+        var key = keyOf(scan.cmc());
+        var previous = latestByCmc.get(key);
+        var millis = toMillis(scan.date());
+        var payload = encode(previous, millis, scan.appId(), scan.cmc(), scan.recipient(), scan.amount());
+
+        var offset = end;
+        var record = ByteBuffer.allocate(HEADER + payload.length + TRAILER)
+                .putInt(payload.length).putInt(crc(payload, payload.length)).put(payload).putInt(payload.length).flip();
+        while (record.hasRemaining()) channel.write(record, offset + record.position());
+        channel.force(false);
+
+        end += record.limit();
+        index(key, offset, millis);
+        return new ScanRecord(offset, scan.appId(), scan.cmc(), scan.recipient(), scan.date(), scan.amount());
+    }
+
+    @Override
+    public boolean scannedSince(String cmc, LocalDateTime since) throws IOException {
+        var threshold = toMillis(since);
+        lock.readLock().lock();
+        try {
+            var offset = latestByCmc.get(keyOf(cmc));
+            while (offset != NONE) {
+                var entry = read(offset);
+                if (entry.millis() < threshold) return false;
+                if (entry.record().cmc().equals(cmc)) return true;
+                offset = entry.previous();
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ScanRecord> findByCmc(String cmc) throws IOException {
+        var records = new ArrayList<ScanRecord>();
+        lock.readLock().lock();
+        try {
+            var offset = latestByCmc.get(keyOf(cmc));
+            while (offset != NONE) {
+                var entry = read(offset);
+                if (entry.record().cmc().equals(cmc)) records.add(entry.record());
+                offset = entry.previous();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return records;
+    }
+
+    @Override
+    public List<ScanRecord> findBetween(LocalDate from, LocalDate to, long after, int skip, int limit) throws IOException {
+        var firstMillis = from.toEpochDay() * MILLIS_PER_DAY;
+        var lastMillis = (to.toEpochDay() + 1) * MILLIS_PER_DAY;
+        var records = new ArrayList<ScanRecord>(Math.min(limit, 1024));
+        lock.readLock().lock();
+        try {
+            long offset;
+            if (after >= 0) {
+                offset = read(after).next();
+            } else {
+                var first = firstOfDay.ceilingEntry(from.toEpochDay());
+                if (first == null) return records;
+                offset = first.getValue();
+            }
+            var skipped = 0;
+            while (offset < end && records.size() < limit) {
+                var entry = read(offset);
+                if (entry.millis() >= lastMillis) break;
+                if (entry.millis() < firstMillis) {
+                    // clock set back while scanning: out of range, but the range goes on
+                } else if (skipped < skip) skipped++;
+                else records.add(entry.record());
+                offset = entry.next();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return records;
+    }
+
+    /**
+     * Adds up the counts of the days of the range, without reading the journal.
+     */
+    @Override
+    public long countBetween(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) return 0;
+        lock.readLock().lock();
+        try {
+            var counted = 0L;
+            for (var count : countOfDay.subMap(from.toEpochDay(), true, to.toEpochDay(), true).values()) counted += count;
+            return counted;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ScanRecord> latest(long before, int skip, int limit) throws IOException {
+        var records = new ArrayList<ScanRecord>(Math.min(limit, 1024));
+        var trailer = ByteBuffer.allocate(TRAILER);
+        lock.readLock().lock();
+        try {
+            var offset = Math.min(before, end);
+            for (int i = 0; i < skip && offset > 0; i++) offset = previousOffset(offset, trailer);
+            while (offset > 0 && records.size() < limit) {
+                offset = previousOffset(offset, trailer);
+                records.add(read(offset).record());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return records;
+    }
+
+    @Override
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Mark mark() {
+        lock.readLock().lock();
+        try {
+            return new Mark(end, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the journal without the scans dated before {@code retainFrom} and saves fresh indexes.
+     */
+    public void compact(LocalDate retainFrom) throws IOException {
+        lock.writeLock().lock();
+        try {
+            doCompact(retainFrom);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void doCompact(LocalDate retainFrom) throws IOException {
+        var threshold = retainFrom.toEpochDay() * MILLIS_PER_DAY;
+        var temporary = dataFile.resolveSibling("scans.dat.tmp");
+        var kept = new CompactionWriter();
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            long offset = 0;
+            while (offset < end) {
+                var entry = read(offset);
+                if (entry.millis() >= threshold) kept.write(out, entry);
+                offset = entry.next();
+            }
+        }
+        var dropped = count - kept.count;
+        channel.close();
+        Files.move(temporary, dataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(dataFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        end = kept.end;
+        count = kept.count;
+        latestByCmc = kept.latestByCmc;
+        firstOfDay = kept.firstOfDay;
+        countOfDay = kept.countOfDay;
+        saveIndex();
+        LOGGER.info("Scan journal compacted: {} scans kept, {} dropped", count, dropped);
+    }
+
+    private void index(long key, long offset, long millis) {
+        latestByCmc.put(key, offset);
+        var day = Math.floorDiv(millis, MILLIS_PER_DAY);
+        var lastDay = firstOfDay.isEmpty() ? Long.MIN_VALUE : firstOfDay.lastKey();
+        if (day > lastDay) firstOfDay.put(day, offset);
+        countOfDay.merge(day, 1L, Long::sum);
+        count++;
+    }
+
+    private long previousOffset(long offset, ByteBuffer trailer) throws IOException {
+        trailer.clear();
+        readFully(trailer, offset - TRAILER);
+        return offset - TRAILER - trailer.getInt(0) - HEADER;
+    }
+
+    private Entry read(long offset) throws IOException {
+        var header = ByteBuffer.allocate(HEADER);
+        readFully(header, offset);
+        var length = header.getInt(0);
+        if (length <= 0 || length > MAX_PAYLOAD) throw new IOException(STR."CORRUPTED_JOURNAL_RECORD at \{offset}");
+        var payload = ByteBuffer.allocate(length);
+        readFully(payload, offset + HEADER);
+        return decode(offset, payload.array(), offset + HEADER + length + TRAILER);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException();
+        }
+    }
+
+    /**
+     * Reads the indexes saved by the last clean close and returns the journal length they cover,
+     * {@code 0} when they are missing or stale.
+     */
+    private long loadIndex() {
+        if (!Files.exists(indexFile)) return 0;
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile), 1 << 16))) {
+            if (in.readLong() != INDEX_MAGIC) return 0;
+            var covered = in.readLong();
+            if (covered > channel.size()) return 0;
+            var records = in.readLong();
+            var entries = in.readInt();
+            var map = new LongLongMap(entries);
+            for (int i = 0; i < entries; i++) map.put(in.readLong(), in.readLong());
+            var days = in.readInt();
+            var dayIndex = new TreeMap<Long, Long>();
+            for (int i = 0; i < days; i++) dayIndex.put(in.readLong(), in.readLong());
+            var counted = in.readInt();
+            var dayCounts = new TreeMap<Long, Long>();
+            for (int i = 0; i < counted; i++) dayCounts.put(in.readLong(), in.readLong());
+            latestByCmc = map;
+            firstOfDay = dayIndex;
+            countOfDay = dayCounts;
+            count = records;
+            end = covered;
+            return covered;
+        } catch (IOException e) {
+            LOGGER.warn("Ignoring unreadable journal index: {}", e.getMessage());
+            latestByCmc = new LongLongMap(1024);
+            firstOfDay = new TreeMap<>();
+            countOfDay = new TreeMap<>();
+            count = 0;
+            end = 0;
+            return 0;
+        }
+    }
+
+    private void saveIndex() throws IOException {
+        var temporary = indexFile.resolveSibling("index.bin.tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            out.writeLong(INDEX_MAGIC);
+            out.writeLong(end);
+            out.writeLong(count);
+            out.writeInt(latestByCmc.size());
+            latestByCmc.forEach((key, value) -> {
+                try {
+                    out.writeLong(key);
+                    out.writeLong(value);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.writeInt(firstOfDay.size());
+            for (var day : firstOfDay.entrySet()) {
+                out.writeLong(day.getKey());
+                out.writeLong(day.getValue());
+            }
+            out.writeInt(countOfDay.size());
+            for (var day : countOfDay.entrySet()) {
+                out.writeLong(day.getKey());
+                out.writeLong(day.getValue());
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Indexes the records appended after {@code from} and truncates whatever follows the last complete one.
+     */
+    private void replay(long from) throws IOException {
+        var size = channel.size();
+        var offset = from;
+        var buffer = new byte[MAX_PAYLOAD];
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(dataFile), 1 << 16))) {
+            in.skipNBytes(from);
+            while (offset + HEADER + TRAILER <= size) {
+                var length = in.readInt();
+                var checksum = in.readInt();
+                if (length <= 0 || length > MAX_PAYLOAD || offset + HEADER + length + TRAILER > size) break;
+                in.readFully(buffer, 0, length);
+                if (in.readInt() != length || crc(buffer, length) != checksum) break;
+                var entry = decode(offset, Arrays.copyOf(buffer, length), offset + HEADER + length + TRAILER);
+                index(keyOf(entry.record().cmc()), offset, entry.millis());
+                offset = entry.next();
+            }
+        } catch (EOFException _) {
+            // torn record, cut below
+        }
+        end = offset;
+        if (offset < size) {
+            LOGGER.warn("Scan journal: dropping {} bytes of incomplete record", size - offset);
+            channel.truncate(offset);
+        }
+    }
+
+    private static byte[] encode(long previous, long millis, UUID appId, String cmc, @Nullable String recipient,
+                                 @Nullable BigDecimal amount) throws IOException {
+        var bytes = new ByteArrayOutputStream(96);
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeLong(previous);
+            out.writeLong(millis);
+            out.writeLong(appId.getMostSignificantBits());
+            out.writeLong(appId.getLeastSignificantBits());
+            out.writeUTF(cmc);
+            out.writeByte((recipient == null ? 0 : 1) | (amount == null ? 0 : 2));
+            if (recipient != null) out.writeUTF(recipient);
+            if (amount != null) out.writeUTF(amount.toPlainString());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Entry decode(long offset, byte[] payload, long next) throws IOException {
+        try (var in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            var previous = in.readLong();
+            var millis = in.readLong();
+            var appId = new UUID(in.readLong(), in.readLong());
+            var cmc = in.readUTF();
+            var flags = in.readByte();
+            var recipient = (flags & 1) != 0 ? in.readUTF() : null;
+            var amount = (flags & 2) != 0 ? new BigDecimal(in.readUTF()) : null;
+            var date = LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+            return new Entry(new ScanRecord(offset, appId, cmc, recipient, date, amount), previous, millis, next);
+        }
+    }
+
+    /**
+     * Dates are kept as local wall-clock milliseconds, so that a day of the index is a calendar day of the terminal.
+     */
+    private static long toMillis(LocalDateTime date) {
+        return date.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Numeric CMCs (the usual case) map to themselves, length included so that leading zeros count;
+     * anything else is hashed into the negative range. Hash collisions are resolved by comparing the CMC.
+     */
+    static long keyOf(String cmc) {
+        var length = cmc.length();
+        if (length > 0 && length <= 17) {
+            long value = 0;
+            var numeric = true;
+            for (int i = 0; i < length && numeric; i++) {
+                var c = cmc.charAt(i);
+                if (c < '0' || c > '9') numeric = false;
+                else value = value * 10 + (c - '0');
+            }
+            if (numeric) return value * 32 + length;
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++) hash = (hash ^ cmc.charAt(i)) * 0x100000001b3L;
+        hash |= Long.MIN_VALUE;
+        return hash == LongLongMap.EMPTY ? hash + 1 : hash;
+    }
+
+    private static int crc(byte[] payload, int length) {
+        var crc = new CRC32();
+        crc.update(payload, 0, length);
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            saveIndex();
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private record Entry(ScanRecord record, long previous, long millis, long next) {
+    }
+
+    /**
+     * Accumulates the records kept by a compaction, with their new positions and links.
+     */
+    private static final class CompactionWriter {
+        private final LongLongMap latestByCmc = new LongLongMap(1024);
+        private final NavigableMap<Long, Long> firstOfDay = new TreeMap<>();
+        private final NavigableMap<Long, Long> countOfDay = new TreeMap<>();
+        private long end;
+        private long count;
+
+        private void write(DataOutputStream out, Entry entry) throws IOException {
+            var record = entry.record();
+            var key = keyOf(record.cmc());
+            var payload = encode(latestByCmc.get(key), entry.millis(), record.appId(), record.cmc(), record.recipient(), record.amount());
+            out.writeInt(payload.length);
+            out.writeInt(crc(payload, payload.length));
+            out.write(payload);
+            out.writeInt(payload.length);
+            latestByCmc.put(key, end);
+            var day = Math.floorDiv(entry.millis(), MILLIS_PER_DAY);
+            if (firstOfDay.isEmpty() || day > firstOfDay.lastKey()) firstOfDay.put(day, end);
+            countOfDay.merge(day, 1L, Long::sum);
+            end += HEADER + payload.length + TRAILER;
+            count++;
+        }
+    }
+
+    /**
+     * Open-addressing map of primitive longs, no boxing and two arrays in all.
+     */
+    static final class LongLongMap {
+        static final long EMPTY = Long.MIN_VALUE;
+
+        private long[] keys;
+        private long[] values;
+        private int size;
+
+        LongLongMap(int expected) {
+            var capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+            keys = new long[capacity];
+            values = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        long get(long key) {
+            var mask = keys.length - 1;
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+                if (keys[i] == EMPTY) return NONE;
+            }
+        }
+
+        void put(long key, long value) {
+            if ((size + 1) * 2 > keys.length) grow();
+            var mask = keys.length - 1;
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                if (keys[i] == EMPTY) {
+                    keys[i] = key;
+                    values[i] = value;
+                    size++;
+                    return;
+                }
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        void forEach(LongBiConsumer consumer) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY) consumer.accept(keys[i], values[i]);
+            }
+        }
+
+        private void grow() {
+            var oldKeys = keys;
+            var oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new long[oldValues.length * 2];
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) put(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            var hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        @FunctionalInterface
+        interface LongBiConsumer {
+            void accept(long key, long value);
+        }
+    }
+
+    private static final class Holder {
+        private static final FileScanJournal INSTANCE = create();
+
+        private static FileScanJournal create() {
+            try {
+                return new FileScanJournal(AppConfig.APP_HOME.resolve("journal"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package sn.finappli.cdcscanner.service.impl;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sn.finappli.cdcscanner.model.output.ScanRegistrationOutput;
+import sn.finappli.cdcscanner.security.TokenManager;
+import sn.finappli.cdcscanner.service.ScanOutbox;
+import sn.finappli.cdcscanner.utility.AppConfig;
+import sn.finappli.cdcscanner.utility.JsonCodec;
+import sn.finappli.cdcscanner.utility.LatencyRecorder;
+import sn.finappli.cdcscanner.utility.Metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only, on-disk outbox for scan uploads.
+ * <p>
+ * {@code journal.log} holds one {@code <idempotency key>\t<json>} line per scan and {@code acks.log} the keys the
+ * backend has accepted; what is in the first and not in the second is still to be sent, including after a crash.
+ * A background sender drains the outbox in batches, retries with exponential backoff, and sends the key as
+ * {@code Idempotency-Key} so that a scan delivered twice is only registered once.
+ * <p>
+ * When {@code outbox.batch-endpoint} is set, a batch goes out as a single NDJSON request streamed line by line,
+ * each line being {@code {"id":"<idempotency key>","scan":{...}}}.
+ */
+public final class FileScanOutbox implements ScanOutbox, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileScanOutbox.class);
+
+    private static final String ENDPOINT = "/api/check-scan";
+    private static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+
+    private final Path journalFile;
+    private final Path ackFile;
+    private final Path deadLetterFile;
+    private final BackendGateway gateway;
+    private final @Nullable String batchEndpoint;
+    private final int batchSize;
+    private final Duration maxBackoff;
+    private final int compactionThreshold;
+
+    private final Map<UUID, String> pending = new LinkedHashMap<>();
+    private final Object lock = new Object();
+    private final ScheduledExecutorService sender;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final LatencyRecorder flushLatency = Metrics.latency("outbox.flush");
+
+    private FileChannel journal;
+    private FileChannel acks;
+    private int ackedSinceCompaction;
+    private Duration backoff = Duration.ZERO;
+    private long nextAttemptAt;
+
+    public FileScanOutbox(Path directory, BackendGateway gateway, int batchSize, Duration flushInterval, Duration maxBackoff) throws IOException {
+        this(directory, gateway, null, batchSize, flushInterval, maxBackoff);
+    }
+
+    public FileScanOutbox(Path directory, BackendGateway gateway, @Nullable String batchEndpoint, int batchSize, Duration flushInterval,
+                          Duration maxBackoff) throws IOException {
+        Files.createDirectories(directory);
+        this.journalFile = directory.resolve("journal.log");
+        this.ackFile = directory.resolve("acks.log");
+        this.deadLetterFile = directory.resolve("dead-letter.log");
+        this.gateway = gateway;
+        this.batchEndpoint = batchEndpoint;
+        this.batchSize = batchSize;
+        this.maxBackoff = maxBackoff;
+        this.compactionThreshold = batchSize * 20;
+
+        recover();
+        this.journal = open(journalFile);
+        this.acks = open(ackFile);
+        this.sender = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("outbox-sender").factory());
+        this.sender.scheduleWithFixedDelay(this::drain, 0, flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        Metrics.gauge("outbox.depth", this::depth);
+        Metrics.gauge("outbox.sent", this::getSentCount);
+        Metrics.gauge("outbox.failures", this::getFailureCount);
+        LOGGER.info("Outbox opened with {} pending scans", depth());
+    }
+
+    public static FileScanOutbox getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    @Override
+    public UUID enqueue(ScanRegistrationOutput output) throws IOException {
+        var id = UUID.randomUUID();
+        var payload = JsonCodec.toJson(output);
+        synchronized (lock) {
+            append(journal, STR."\{id}\t\{payload}\n");
+            pending.put(id, payload);
+        }
+        sender.execute(this::drain);
+        return id;
+    }
+
+    @Override
+    public int depth() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    public LatencyRecorder getFlushLatency() {
+        return flushLatency;
+    }
+
+    private void drain() {
+        if (!draining.compareAndSet(false, true)) return;
+        try {
+            while (System.currentTimeMillis() >= nextAttemptAt) {
+                var batch = nextBatch();
+                if (batch.isEmpty()) return;
+                var start = System.nanoTime();
+                var outcome = send(batch);
+                flushLatency.recordSince(start);
+                acknowledge(outcome.delivered());
+                deadLetter(outcome.rejected());
+                if (outcome.retry()) {
+                    backoff = backoff.isZero() ? MIN_BACKOFF : min(backoff.multipliedBy(2), maxBackoff);
+                    nextAttemptAt = System.currentTimeMillis() + backoff.toMillis() + ThreadLocalRandom.current().nextLong(250);
+                    LOGGER.warn("Outbox upload failed, {} scans pending, next attempt in {} ms", depth(), backoff.toMillis());
+                } else {
+                    backoff = Duration.ZERO;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+        } catch (RuntimeException e) {
+            LOGGER.error(e.getMessage(), e);
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    private List<Map.Entry<UUID, String>> nextBatch() {
+        synchronized (lock) {
+            var batch = new ArrayList<Map.Entry<UUID, String>>(Math.min(batchSize, pending.size()));
+            for (var entry : pending.entrySet()) {
+                if (batch.size() == batchSize) break;
+                batch.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+            return batch;
+        }
+    }
+
+    private Outcome send(List<Map.Entry<UUID, String>> batch) {
+        if (batchEndpoint != null && batch.size() > 1) return sendAsNdjson(batch);
+        var futures = new ArrayList<CompletableFuture<Integer>>(batch.size());
+        for (var entry : batch) {
+            var request = TokenManager.getInstance().authorize(gateway.request(ENDPOINT), "POST", ENDPOINT)
+                    .POST(HttpRequest.BodyPublishers.ofString(entry.getValue()))
+                    .header("Content-type", "application/json")
+                    .header("Idempotency-Key", entry.getKey().toString())
+                    .build();
+            futures.add(gateway.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .thenApply(HttpResponse::statusCode)
+                    .exceptionally(e -> {
+                        LOGGER.debug(e.getMessage(), e);
+                        return -1;
+                    }));
+        }
+
+        var delivered = new ArrayList<UUID>();
+        var rejected = new ArrayList<UUID>();
+        var retry = false;
+        for (int i = 0; i < batch.size(); i++) {
+            var status = futures.get(i).join();
+            var id = batch.get(i).getKey();
+            if ((status >= 200 && status < 300) || status == 409) {
+                delivered.add(id);
+                sent.incrementAndGet();
+            } else if (isRejection(status)) {
+                LOGGER.error("Scan {} rejected by the backend with status {}", id, status);
+                rejected.add(id);
+                failures.incrementAndGet();
+            } else {
+                failures.incrementAndGet();
+                retry = true;
+            }
+        }
+        return new Outcome(delivered, rejected, retry);
+    }
+
+    private Outcome sendAsNdjson(List<Map.Entry<UUID, String>> batch) {
+        var lines = new ArrayList<String>(batch.size());
+        var ids = new ArrayList<UUID>(batch.size());
+        for (var entry : batch) {
+            lines.add(STR."{\"id\":\"\{entry.getKey()}\",\"scan\":\{entry.getValue()}}");
+            ids.add(entry.getKey());
+        }
+        var request = TokenManager.getInstance().authorize(gateway.request(batchEndpoint), "POST", batchEndpoint)
+                .POST(JsonCodec.ndjsonOfRaw(lines))
+                .header("Content-type", "application/x-ndjson")
+                .build();
+        int status;
+        try {
+            status = gateway.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            LOGGER.debug(e.getMessage(), e);
+            status = -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = -1;
+        }
+        if ((status >= 200 && status < 300) || status == 409) {
+            sent.addAndGet(ids.size());
+            return new Outcome(ids, List.of(), false);
+        }
+        failures.addAndGet(ids.size());
+        if (isRejection(status)) {
+            LOGGER.error("Batch of {} scans rejected by the backend with status {}", ids.size(), status);
+            return new Outcome(List.of(), ids, false);
+        }
+        return new Outcome(List.of(), List.of(), true);
+    }
+
+    private static boolean isRejection(int status) {
+        return status >= 400 && status < 500 && status != 401 && status != 403 && status != 408 && status != 429;
+    }
+
+    private void acknowledge(List<UUID> ids) throws IOException {
+        if (ids.isEmpty()) return;
+        synchronized (lock) {
+            var lines = new StringBuilder(ids.size() * 37);
+            for (var id : ids) {
+                lines.append(id).append('\n');
+                pending.remove(id);
+            }
+            append(acks, lines.toString());
+            ackedSinceCompaction += ids.size();
+            if (pending.isEmpty() || ackedSinceCompaction >= compactionThreshold) compact();
+        }
+    }
+
+    private void deadLetter(List<UUID> ids) throws IOException {
+        if (ids.isEmpty()) return;
+        var lines = new StringBuilder();
+        synchronized (lock) {
+            for (var id : ids) lines.append(id).append('\t').append(pending.get(id)).append('\n');
+            Files.writeString(deadLetterFile, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        acknowledge(ids);
+    }
+
+    /**
+     * Rewrites the journal with the pending scans only and empties the acknowledgement log. Called with the lock held.
+     */
+    private void compact() throws IOException {
+        var temporary = journalFile.resolveSibling("journal.log.tmp");
+        try (var out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            var lines = new StringBuilder();
+            pending.forEach((id, payload) -> lines.append(id).append('\t').append(payload).append('\n'));
+            append(out, lines.toString());
+        }
+        journal.close();
+        Files.move(temporary, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journal = open(journalFile);
+        acks.truncate(0);
+        acks.force(true);
+        ackedSinceCompaction = 0;
+    }
+
+    private void recover() throws IOException {
+        var acknowledged = new HashSet<String>();
+        if (Files.exists(ackFile)) {
+            try (var lines = Files.lines(ackFile, StandardCharsets.UTF_8)) {
+                lines.filter(line -> !line.isBlank()).forEach(acknowledged::add);
+            }
+        }
+        if (!Files.exists(journalFile)) return;
+        try (var lines = Files.lines(journalFile, StandardCharsets.UTF_8)) {
+            lines.forEach(line -> {
+                var tab = line.indexOf('\t');
+                // a torn last line (crash while appending) has no tab or an incomplete payload and is dropped
+                if (tab != 36 || !line.endsWith("}")) return;
+                var id = line.substring(0, tab);
+                if (!acknowledged.contains(id)) pending.put(UUID.fromString(id), line.substring(tab + 1));
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        ackedSinceCompaction = acknowledged.size();
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static void append(FileChannel channel, String content) throws IOException {
+        var buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) channel.write(buffer);
+        channel.force(false);
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    @Override
+    public void close() {
+        sender.shutdown();
+        try {
+            if (!sender.awaitTermination(5, TimeUnit.SECONDS)) sender.shutdownNow();
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            try {
+                journal.close();
+                acks.close();
+            } catch (IOException e) {
+                LOGGER.error(e.getMessage(), e);
+            }
+        }
+        LOGGER.info("Outbox closed with {} pending scans. {}", depth(), flushLatency.snapshot());
+    }
+
+    private record Outcome(List<UUID> delivered, List<UUID> rejected, boolean retry) {
+    }
+
+    private static final class Holder {
+        private static final FileScanOutbox INSTANCE = create();
+
+        private static FileScanOutbox create() {
+            try {
+                return new FileScanOutbox(AppConfig.APP_HOME.resolve("outbox"), BackendGateway.getInstance(),
+                        AppConfig.get("outbox.batch-endpoint"),
+                        AppConfig.getInt("outbox.batch-size", 50),
+                        AppConfig.getDuration("outbox.flush-interval", Duration.ofSeconds(1)),
+                        AppConfig.getDuration("outbox.max-backoff", Duration.ofMinutes(1)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
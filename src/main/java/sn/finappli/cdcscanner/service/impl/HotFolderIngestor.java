@@ -0,0 +1,367 @@
+package sn.finappli.cdcscanner.service.impl;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sn.finappli.cdcscanner.model.output.PageReading;
+import sn.finappli.cdcscanner.model.output.ScanRegistrationOutput;
+import sn.finappli.cdcscanner.service.OCRReader;
+import sn.finappli.cdcscanner.service.ScanJournal;
+import sn.finappli.cdcscanner.service.ScanOutbox;
+import sn.finappli.cdcscanner.utility.AppConfig;
+import sn.finappli.cdcscanner.utility.ContentHash;
+import sn.finappli.cdcscanner.utility.LatencyRecorder;
+import sn.finappli.cdcscanner.utility.Metrics;
+import sn.finappli.cdcscanner.utility.Trace;
+import sn.finappli.cdcscanner.utility.SystemUtils;
+import sn.finappli.cdcscanner.utility.Utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ingests the images the scanners drop into a hot folder: OCR, then upload through the {@link ScanOutbox},
+ * without going through the UI. A multi-page TIFF or PDF holds a stack of cheques: its pages are read in parallel
+ * and each one is queued as a scan of its own.
+ * <p>
+ * A file is only picked up once its size and modification time have not moved for {@code stableFor}, so a scan
+ * still being written (or copied over the network share) is never read half-way. Files are de-duplicated on the
+ * SHA-256 of their content, then moved out of the folder:
+ * <pre>
+ * inbox/                 watched, only the top level
+ * inbox/processed/date/  read and queued for upload, with a .error.txt listing the pages not read
+ * inbox/duplicates/      same content as an already ingested scan
+ * inbox/quarantine/      no page read, with a .error.txt next to it
+ * </pre>
+ * The {@link WatchService} gives low latency; a periodic rescan catches what it misses (overflow, SMB shares
+ * that do not report events).
+ */
+public class HotFolderIngestor implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HotFolderIngestor.class);
+    private static final LongAdder DUPLICATE_SCANS = Metrics.counter("scan.duplicates");
+
+    private final Path inbox;
+    private final Path processed;
+    private final Path duplicates;
+    private final Path quarantine;
+    private final Path hashLog;
+    private final ScanOutbox outbox;
+    private final ScanJournal journal;
+    private final ScanStatistics statistics;
+    private final Duration stableFor;
+    private final Duration rescanInterval;
+
+    private final Map<Path, Candidate> candidates = new ConcurrentHashMap<>();
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+    private final Set<String> ingested = ConcurrentHashMap.newKeySet();
+    private final ExecutorService workers;
+    private final BatchOCRPipeline pages;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("hotfolder-scheduler").factory());
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong duplicateCount = new AtomicLong();
+    private final AtomicLong quarantinedCount = new AtomicLong();
+    private final LatencyRecorder ingestLatency = Metrics.latency("hotfolder.ingest");
+    private final Object hashLock = new Object();
+
+    private @Nullable WatchService watchService;
+    private @Nullable Thread watcher;
+    private @Nullable FileChannel hashes;
+
+    public HotFolderIngestor(Path inbox, OCRReader reader, ScanOutbox outbox, ScanJournal journal, ScanStatistics statistics,
+                             int concurrency, Duration stableFor, Duration rescanInterval) {
+        if (concurrency < 1) throw new IllegalArgumentException("CONCURRENCY_MUST_BE_POSITIVE");
+        this.inbox = inbox;
+        this.processed = inbox.resolve("processed");
+        this.duplicates = inbox.resolve("duplicates");
+        this.quarantine = inbox.resolve("quarantine");
+        this.hashLog = inbox.resolve(".ingested");
+        this.outbox = outbox;
+        this.journal = journal;
+        this.statistics = statistics;
+        this.stableFor = stableFor;
+        this.rescanInterval = rescanInterval;
+        this.workers = Executors.newFixedThreadPool(concurrency, Thread.ofPlatform().daemon().name("hotfolder-", 0).factory());
+        this.pages = new BatchOCRPipeline(reader, concurrency);
+    }
+
+    /**
+     * The ingestor configured by {@code hotfolder.path}, or {@code null} when the hot-folder mode is off.
+     */
+    public static @Nullable HotFolderIngestor fromConfig() {
+        var path = AppConfig.get("hotfolder.path");
+        if (path == null) return null;
+        return new HotFolderIngestor(Path.of(path), CachingOCRReader.getInstance(), FileScanOutbox.getInstance(),
+                FileScanJournal.getInstance(), ScanStatistics.getInstance(),
+                AppConfig.getInt("hotfolder.concurrency", TesseractEnginePool.getInstance().getSize()),
+                AppConfig.getDuration("hotfolder.stable-time", Duration.ofSeconds(2)),
+                AppConfig.getDuration("hotfolder.rescan-interval", Duration.ofSeconds(15)));
+    }
+
+    public synchronized void start() throws IOException {
+        if (watcher != null) return;
+        for (var directory : new Path[]{inbox, processed, duplicates, quarantine}) Files.createDirectories(directory);
+        Metrics.gauge("hotfolder.backlog", this::getBacklog);
+        Metrics.gauge("hotfolder.processed", this::getProcessedCount);
+        Metrics.gauge("hotfolder.duplicates", this::getDuplicateCount);
+        Metrics.gauge("hotfolder.quarantined", this::getQuarantinedCount);
+        if (Files.exists(hashLog)) {
+            try (var lines = Files.lines(hashLog, StandardCharsets.UTF_8)) {
+                lines.filter(line -> line.length() == 64).forEach(ingested::add);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        hashes = FileChannel.open(hashLog, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        var service = FileSystems.getDefault().newWatchService();
+        inbox.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchService = service;
+        watcher = Thread.ofPlatform().daemon().name("hotfolder-watcher").start(() -> watch(service));
+
+        var checkEvery = Math.max(100, stableFor.toMillis() / 2);
+        scheduler.scheduleWithFixedDelay(this::promoteStableFiles, checkEvery, checkEvery, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::rescan, 0, rescanInterval.toMillis(), TimeUnit.MILLISECONDS);
+        LOGGER.info("Watching {} ({} scans already ingested)", inbox, ingested.size());
+    }
+
+    private void watch(WatchService service) {
+        try {
+            while (true) {
+                var key = service.take();
+                var overflow = false;
+                for (var event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) overflow = true;
+                    else if (event.context() instanceof Path name) offer(inbox.resolve(name));
+                }
+                if (overflow) scheduler.execute(this::rescan);
+                if (!key.reset()) {
+                    LOGGER.error("Hot folder {} is no longer accessible", inbox);
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException _) {
+            // closing
+        }
+    }
+
+    private void rescan() {
+        try (var files = Files.list(inbox)) {
+            files.forEach(this::offer);
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.warn("Cannot list {}: {}", inbox, e.getMessage());
+        }
+    }
+
+    private void offer(Path file) {
+        if (inFlight.contains(file) || !Utils.isScannedImage(file) || file.getFileName().toString().startsWith(".")) return;
+        candidates.computeIfAbsent(file, _ -> new Candidate(-1, -1, System.nanoTime()));
+    }
+
+    /**
+     * Hands over to the workers the files that have stopped growing.
+     */
+    private void promoteStableFiles() {
+        var now = System.nanoTime();
+        for (var entry : candidates.entrySet()) {
+            var file = entry.getKey();
+            var previous = entry.getValue();
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (IOException _) {
+                candidates.remove(file);
+                continue;
+            }
+            if (!attributes.isRegularFile()) {
+                candidates.remove(file);
+                continue;
+            }
+            var size = attributes.size();
+            var modified = attributes.lastModifiedTime().toMillis();
+            if (size != previous.size() || modified != previous.modified()) {
+                candidates.put(file, new Candidate(size, modified, now));
+            } else if (size > 0 && now - previous.since() >= stableFor.toNanos() && inFlight.add(file)) {
+                candidates.remove(file);
+                workers.execute(() -> ingest(file));
+            }
+        }
+    }
+
+    private void ingest(Path file) {
+        var start = System.nanoTime();
+        String hash = null;
+        var queued = 0;
+        try (var trace = Trace.start("scan")) {
+            hash = ContentHash.sha256(file);
+            if (!ingested.add(hash)) {
+                duplicateCount.incrementAndGet();
+                LOGGER.info("{} is a duplicate, skipped", file.getFileName());
+                move(file, duplicates);
+                return;
+            }
+            var failures = new ArrayList<String>();
+            var handled = 0;
+            try (var readings = pages.pages(file.toFile())) {
+                for (var iterator = readings.iterator(); iterator.hasNext(); ) {
+                    var page = iterator.next();
+                    trace.stage("ocr");
+                    if (page.isFailure() || page.reading().cmc().isBlank()) {
+                        statistics.recordFailure(SystemUtils.getAppIdentifier());
+                        failures.add(STR."page \{page.page() + 1}: \{page.isFailure() ? page.error() : "NO_CMC_FOUND"}");
+                    } else {
+                        queue(file, page, trace);
+                        queued++;
+                    }
+                    handled = page.page() + 1;
+                }
+            } catch (IOException | RuntimeException e) {
+                // the pages already queued are in the outbox: the file is filed as processed, not quarantined
+                if (queued == 0) throw e;
+                LOGGER.error("{}: reading stopped at page {} after {} scan(s) queued", file.getFileName(), handled + 1, queued, e);
+                failures.add(STR."page \{handled + 1} and after: \{reason(e)}");
+            }
+            if (queued == 0) {
+                ingested.remove(hash);
+                quarantine(file, failures.isEmpty() ? "NO_PAGE_FOUND" : String.join("\n", failures));
+                return;
+            }
+            remember(hash);
+            var target = move(file, processed.resolve(LocalDate.now().toString()));
+            if (!failures.isEmpty()) {
+                LOGGER.warn("{}: {} page(s) not read, see {}.error.txt", file.getFileName(), failures.size(), target.getFileName());
+                Files.writeString(target.resolveSibling(STR."\{target.getFileName()}.error.txt"), String.join("\n", failures),
+                        StandardCharsets.UTF_8);
+            }
+            processedCount.incrementAndGet();
+            LOGGER.info("{} ingested: {} scan(s) queued", file.getFileName(), queued);
+        } catch (IOException | RuntimeException e) {
+            if (queued > 0) {
+                // forgetting the hash would queue the same scans again on the next rescan
+                LOGGER.error("{} ingested ({} scan(s) queued) but cannot be filed away", file, queued, e);
+            } else {
+                if (hash != null) ingested.remove(hash);
+                LOGGER.error("Cannot ingest {}", file, e);
+                quarantine(file, reason(e));
+            }
+        } finally {
+            inFlight.remove(file);
+            ingestLatency.recordSince(start);
+        }
+    }
+
+    private void queue(Path file, PageReading page, Trace trace) throws IOException {
+        var scan = ScanRegistrationOutput.of(SystemUtils.getAppIdentifier(), SystemUtils.getIPAddress(), page.reading());
+        if (journal.scannedSince(scan.cmc(), LocalDate.now().atStartOfDay())) {
+            DUPLICATE_SCANS.increment();
+            LOGGER.warn("Cheque {} of {} (page {}) was already scanned today", scan.cmc(), file.getFileName(), page.page() + 1);
+        }
+        journal.append(scan);
+        trace.stage("journal");
+        var id = outbox.enqueue(scan);
+        trace.stage("outbox");
+        statistics.recordScan(scan);
+        LOGGER.debug("Page {} of {} queued as scan {}", page.page() + 1, file.getFileName(), id);
+    }
+
+    private static String reason(Exception e) {
+        return e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+    }
+
+    private void quarantine(Path file, String reason) {
+        quarantinedCount.incrementAndGet();
+        try {
+            var target = move(file, quarantine);
+            Files.writeString(target.resolveSibling(STR."\{target.getFileName()}.error.txt"), reason, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            LOGGER.error("Cannot quarantine {}", file, e);
+        }
+    }
+
+    private void remember(String hash) throws IOException {
+        synchronized (hashLock) {
+            if (hashes == null || !hashes.isOpen()) return;
+            hashes.write(StandardCharsets.US_ASCII.encode(STR."\{hash}\n"));
+            hashes.force(false);
+        }
+    }
+
+    private static Path move(Path file, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        var target = directory.resolve(file.getFileName());
+        for (int i = 1; Files.exists(target); i++) target = directory.resolve(STR."\{i}-\{file.getFileName()}");
+        try {
+            return Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException _) {
+            return Files.move(file, target);
+        }
+    }
+
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    public long getDuplicateCount() {
+        return duplicateCount.get();
+    }
+
+    public long getQuarantinedCount() {
+        return quarantinedCount.get();
+    }
+
+    public int getBacklog() {
+        return candidates.size() + inFlight.size();
+    }
+
+    public LatencyRecorder getIngestLatency() {
+        return ingestLatency;
+    }
+
+    @Override
+    public synchronized void close() {
+        scheduler.shutdownNow();
+        workers.shutdown();
+        try {
+            if (watchService != null) watchService.close();
+            if (!workers.awaitTermination(30, TimeUnit.SECONDS)) workers.shutdownNow();
+            pages.close();
+            synchronized (hashLock) {
+                if (hashes != null) hashes.close();
+            }
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.info("Hot folder closed: {} processed, {} duplicates, {} quarantined. {}",
+                processedCount.get(), duplicateCount.get(), quarantinedCount.get(), ingestLatency.snapshot());
+    }
+
+    private record Candidate(long size, long modified, long since) {
+    }
+}
@@ -0,0 +1,139 @@
+package sn.finappli.cdcscanner.service.impl;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sn.finappli.cdcscanner.security.TokenManager;
+import sn.finappli.cdcscanner.utility.AppConfig;
+import sn.finappli.cdcscanner.utility.JsonCodec;
+import sn.finappli.cdcscanner.utility.Metrics;
+import sn.finappli.cdcscanner.utility.Trace;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically writes a {@link Metrics} snapshot and the sampled {@link Trace}s, as NDJSON, either to
+ * {@code <directory>/metrics-<date>.ndjson} and {@code traces-<date>.ndjson} or, when {@code metrics.endpoint} is
+ * set, to that endpoint. Whatever the endpoint does not accept is written locally. Files older than
+ * {@code metrics.retention-days} are removed on start.
+ */
+public final class MetricsExporter implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsExporter.class);
+
+    private final Path directory;
+    private final @Nullable URI endpoint;
+    private final Duration interval;
+    private final int retentionDays;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("metrics-export").factory());
+
+    public MetricsExporter(Path directory, @Nullable URI endpoint, Duration interval, int retentionDays) {
+        this.directory = directory;
+        this.endpoint = endpoint;
+        this.interval = interval;
+        this.retentionDays = retentionDays;
+    }
+
+    public static MetricsExporter getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        purge();
+        scheduler.scheduleWithFixedDelay(this::exportQuietly, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        LOGGER.info("Exporting metrics every {} s to {}", interval.toSeconds(), endpoint == null ? directory : endpoint);
+    }
+
+    public void export() throws IOException {
+        var snapshot = Metrics.snapshot();
+        var traces = Trace.drain();
+        if (endpoint != null && post(snapshot, traces)) return;
+
+        var day = LocalDate.now();
+        append(directory.resolve(STR."metrics-\{day}.ndjson"), List.of(JsonCodec.toJson(snapshot)));
+        if (traces.isEmpty()) return;
+        var lines = new ArrayList<String>(traces.size());
+        for (var trace : traces) lines.add(JsonCodec.toJson(trace));
+        append(directory.resolve(STR."traces-\{day}.ndjson"), lines);
+    }
+
+    private void exportQuietly() {
+        try {
+            export();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Cannot export metrics: {}", e.getMessage());
+        }
+    }
+
+    private boolean post(Metrics.Snapshot snapshot, List<Trace.Sample> traces) {
+        var records = new ArrayList<Object>(traces.size() + 1);
+        records.add(snapshot);
+        records.addAll(traces);
+        var gateway = BackendGateway.getInstance();
+        try {
+            var request = TokenManager.getInstance().authorize(gateway.request(endpoint), "POST", endpoint.getPath())
+                    .POST(JsonCodec.ndjson(records))
+                    .header("Content-Type", "application/x-ndjson")
+                    .build();
+            var status = gateway.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (status / 100 == 2) return true;
+            LOGGER.warn("Metrics endpoint answered {}, keeping the export locally", status);
+        } catch (IOException e) {
+            LOGGER.warn("Metrics endpoint unreachable, keeping the export locally: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private static void append(Path file, List<String> lines) throws IOException {
+        Files.write(file, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void purge() throws IOException {
+        if (retentionDays <= 0) return;
+        var oldest = LocalDate.now().minusDays(retentionDays).toString();
+        try (var files = Files.list(directory)) {
+            for (var file : (Iterable<Path>) files::iterator) {
+                var name = file.getFileName().toString();
+                var dash = name.indexOf('-');
+                if (!name.endsWith(".ndjson") || dash < 0) continue;
+                var day = name.substring(dash + 1, name.length() - ".ndjson".length());
+                if (day.compareTo(oldest) < 0) Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        exportQuietly();
+    }
+
+    private static final class Holder {
+        private static final MetricsExporter INSTANCE = new MetricsExporter(
+                AppConfig.APP_HOME.resolve("metrics"),
+                endpoint(),
+                AppConfig.getDuration("metrics.export-interval", Duration.ofMinutes(1)),
+                AppConfig.getInt("metrics.retention-days", 7));
+
+        private static @Nullable URI endpoint() {
+            var endpoint = AppConfig.get("metrics.endpoint");
+            return endpoint == null ? null : URI.create(endpoint);
+        }
+    }
+}
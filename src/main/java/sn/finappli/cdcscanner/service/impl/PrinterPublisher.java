@@ -1,22 +1,176 @@
 package sn.finappli.cdcscanner.service.impl;
 
-import javax.print.PrintService;
-import javax.print.PrintServiceLookup;
-import java.util.Arrays;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sn.finappli.cdcscanner.model.output.DeviceEvent;
+
+import java.util.ArrayDeque;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Flow;
-import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes device events to subscribers, each with its own bounded buffer so that a slow subscriber neither
+ * blocks the watcher nor grows without limit. When a buffer is full, {@link OverflowPolicy} decides which event
+ * is lost.
+ */
+public class PrinterPublisher implements Flow.Publisher<DeviceEvent>, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrinterPublisher.class);
+
+    public static final int DEFAULT_CAPACITY = 64;
 
-public class PrinterPublisher implements Flow.Publisher<List<PrintService>> {
-    private final SubmissionPublisher<List<PrintService>> publisher = new SubmissionPublisher<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<BoundedSubscription> subscriptions = new CopyOnWriteArrayList<>();
 
-    public void notifyPrintersChanged() {
-        List<PrintService> printers = Arrays.asList(PrintServiceLookup.lookupPrintServices(null, null));
-        publisher.submit(printers);
+    public void publish(DeviceEvent event) {
+        for (var subscription : subscriptions) subscription.offer(event);
     }
 
     @Override
-    public void subscribe(Flow.Subscriber<? super List<PrintService>> subscriber) {
-        publisher.subscribe(subscriber);
+    public void subscribe(Flow.Subscriber<? super DeviceEvent> subscriber) {
+        subscribe(subscriber, DEFAULT_CAPACITY, OverflowPolicy.LATEST_WINS);
+    }
+
+    public void subscribe(Flow.Subscriber<? super DeviceEvent> subscriber, int capacity, OverflowPolicy policy) {
+        Objects.requireNonNull(subscriber);
+        if (capacity < 1) throw new IllegalArgumentException("CAPACITY_MUST_BE_POSITIVE");
+        var subscription = new BoundedSubscription(subscriber, capacity, policy, executor);
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+    }
+
+    public long getDroppedCount() {
+        return subscriptions.stream().mapToLong(BoundedSubscription::dropped).sum();
+    }
+
+    @Override
+    public void close() {
+        for (var subscription : subscriptions) subscription.complete();
+        executor.shutdown();
+    }
+
+    public enum OverflowPolicy {
+        /**
+         * The incoming event is discarded.
+         */
+        DROP_NEWEST,
+        /**
+         * The oldest buffered event is discarded to make room for the incoming one.
+         */
+        LATEST_WINS
+    }
+
+    private final class BoundedSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super DeviceEvent> subscriber;
+        private final int capacity;
+        private final OverflowPolicy policy;
+        private final Executor executor;
+        private final ArrayDeque<DeviceEvent> buffer;
+        private final AtomicInteger work = new AtomicInteger();
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile boolean cancelled;
+        private volatile boolean completed;
+        private volatile Throwable error;
+
+        private BoundedSubscription(Flow.Subscriber<? super DeviceEvent> subscriber, int capacity, OverflowPolicy policy, Executor executor) {
+            this.subscriber = subscriber;
+            this.capacity = capacity;
+            this.policy = policy;
+            this.executor = executor;
+            this.buffer = new ArrayDeque<>(capacity);
+        }
+
+        private void offer(DeviceEvent event) {
+            if (cancelled || completed) return;
+            synchronized (buffer) {
+                if (buffer.size() == capacity) {
+                    dropped.incrementAndGet();
+                    if (policy == OverflowPolicy.DROP_NEWEST) return;
+                    buffer.pollFirst();
+                }
+                buffer.addLast(event);
+            }
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("NON_POSITIVE_REQUEST");
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            synchronized (buffer) {
+                buffer.clear();
+            }
+        }
+
+        private void complete() {
+            completed = true;
+            schedule();
+        }
+
+        private long dropped() {
+            return dropped.get();
+        }
+
+        private void schedule() {
+            if (work.getAndIncrement() == 0) executor.execute(this::drain);
+        }
+
+        private void drain() {
+            var missed = 1;
+            do {
+                if (error != null && !cancelled) {
+                    cancel();
+                    subscriber.onError(error);
+                    return;
+                }
+                while (!cancelled && demand.get() > 0) {
+                    DeviceEvent event;
+                    synchronized (buffer) {
+                        event = buffer.pollFirst();
+                    }
+                    if (event == null) break;
+                    if (demand.get() != Long.MAX_VALUE) demand.decrementAndGet();
+                    try {
+                        subscriber.onNext(event);
+                    } catch (RuntimeException e) {
+                        LOGGER.error(e.getMessage(), e);
+                        cancel();
+                        subscriber.onError(e);
+                        return;
+                    }
+                }
+                if (completed && !cancelled && isEmpty()) {
+                    cancel();
+                    subscriber.onComplete();
+                    return;
+                }
+                missed = work.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private boolean isEmpty() {
+            synchronized (buffer) {
+                return buffer.isEmpty();
+            }
+        }
     }
 }
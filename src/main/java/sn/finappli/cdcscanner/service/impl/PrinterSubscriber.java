@@ -2,12 +2,11 @@ package sn.finappli.cdcscanner.service.impl;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import sn.finappli.cdcscanner.model.output.DeviceEvent;
 
-import javax.print.PrintService;
-import java.util.List;
 import java.util.concurrent.Flow;
 
-public class PrinterSubscriber implements Flow.Subscriber<List<PrintService>> {
+public class PrinterSubscriber implements Flow.Subscriber<DeviceEvent> {
     
     private static final Logger log = LoggerFactory.getLogger(PrinterSubscriber.class);
 
@@ -16,15 +15,12 @@ public class PrinterSubscriber implements Flow.Subscriber<List<PrintService>> {
     @Override
     public void onSubscribe(Flow.Subscription subscription) {
         this.subscription = subscription;
-        subscription.request(Long.MAX_VALUE); // Request all available items
+        subscription.request(Long.MAX_VALUE); // the publisher bounds what is buffered for us
     }
 
     @Override
-    public void onNext(List<PrintService> printers) {
-        log.info("Printers changed. New list:");
-        for (PrintService printer : printers) {
-            log.info(printer.getName());
-        }
+    public void onNext(DeviceEvent event) {
+        log.info("Printer {}: {}", event.type(), event.device().getName());
     }
 
     @Override
@@ -0,0 +1,37 @@
+package sn.finappli.cdcscanner.service.impl;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.util.function.Supplier;
+
+/**
+ * Looks the public IP of this terminal up at {@code url}, through the shared {@link BackendGateway}; understands both
+ * plain-text answers and httpbin's {@code {"origin": "..."}}. Answers {@code null} when the lookup fails.
+ */
+public final class PublicIpLookup implements Supplier<String> {
+
+    private final URI url;
+
+    public PublicIpLookup(URI url) {
+        this.url = url;
+    }
+
+    @Override
+    public @Nullable String get() {
+        try {
+            var gateway = BackendGateway.getInstance();
+            var response = gateway.send(gateway.request(url).GET().build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) return null;
+            var body = response.body().strip();
+            return body.contains("\"") ? body.split("\"")[3] : body;
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (IOException | RuntimeException _) {
+            return null;
+        }
+    }
+}
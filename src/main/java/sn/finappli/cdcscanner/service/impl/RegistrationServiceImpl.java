@@ -1,25 +1,87 @@
 package sn.finappli.cdcscanner.service.impl;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import sn.finappli.cdcscanner.model.output.RegistrationConfirmationOutput;
 import sn.finappli.cdcscanner.model.output.RegistrationOutput;
+import sn.finappli.cdcscanner.security.VerdictCache;
 import sn.finappli.cdcscanner.service.RegistrationService;
-import sn.finappli.cdcscanner.utility.SystemUtils;
+import sn.finappli.cdcscanner.utility.AppConfig;
 
-import java.net.http.HttpClient;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Registration of this terminal. A positive verdict of the backend is cached ({@link VerdictCache}) and trusted
+ * for {@code registration.ttl} (1 day by default) without asking again; for {@code registration.grace} after that
+ * (30 days) it is still trusted, so that a terminal starts while the link is down, and the backend is asked again
+ * in the background. Past the grace window, or without a cached verdict, the check waits for the backend.
+ */
 public class RegistrationServiceImpl implements RegistrationService {
-    @Override
-    public boolean isRegistered() {
-        var appId = SystemUtils.getAppIdentifier();
 
-        try (var client = HttpClient.newHttpClient()) {
-            Thread.sleep(2000);
+    private static final Logger LOGGER = LoggerFactory.getLogger(RegistrationServiceImpl.class);
+
+    private final VerdictCache verdicts;
+    private final Duration ttl;
+    private final Duration grace;
+    private final AtomicBoolean revalidating = new AtomicBoolean();
+
+    public RegistrationServiceImpl() {
+        this(VerdictCache.getInstance(), AppConfig.getDuration("registration.ttl", Duration.ofDays(1)),
+                AppConfig.getDuration("registration.grace", Duration.ofDays(30)));
+    }
+
+    public RegistrationServiceImpl(VerdictCache verdicts, Duration ttl, Duration grace) {
+        this.verdicts = verdicts;
+        this.ttl = ttl;
+        this.grace = grace;
+    }
 
-            return true;
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return false;
+    @Override
+    public boolean isRegistered() throws InterruptedException {
+        var verdict = verdicts.registration();
+        if (verdict != null && verdict.registered()) {
+            var freshUntil = verdict.checkedAt().plus(ttl);
+            var now = Instant.now();
+            if (now.isBefore(freshUntil)) return true;
+            if (now.isBefore(freshUntil.plus(grace))) {
+                revalidate();
+                return true;
+            }
         }
+        return checkWithBackend();
+    }
+
+    /**
+     * Asks the backend again in the background. Only a definite answer replaces the cached verdict; while the
+     * backend cannot be reached the terminal keeps working on the one it has.
+     */
+    private void revalidate() {
+        if (!revalidating.compareAndSet(false, true)) return;
+        Thread.ofVirtual().name("registration-check").start(() -> {
+            try {
+                if (!checkWithBackend()) LOGGER.warn("This terminal is no longer registered");
+            } catch (InterruptedException _) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Cannot revalidate the registration, keeping the cached verdict: {}", e.getMessage());
+            } finally {
+                revalidating.set(false);
+            }
+        });
+    }
+
+    /**
+     * Asks the backend and caches its answer, whatever it is: a negative one revokes the cached verdict.
+     */
+    private boolean checkWithBackend() throws InterruptedException {
+        // the registration endpoint is not available yet, its answer is simulated
+        Thread.sleep(2000);
+        var registered = true;
+
+        verdicts.saveRegistration(registered);
+        return registered;
     }
 
     @Override
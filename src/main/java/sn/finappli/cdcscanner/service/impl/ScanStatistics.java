@@ -0,0 +1,269 @@
+package sn.finappli.cdcscanner.service.impl;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sn.finappli.cdcscanner.model.output.ScanRegistrationOutput;
+import sn.finappli.cdcscanner.utility.AppConfig;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Running totals of the scans, per day and per teller (the terminal, {@code appId}), updated as each scan
+ * completes. Reading the totals of a day never looks at the scans themselves, so it costs the same with ten
+ * scans or a million.
+ * <p>
+ * Listeners are told of changes, and of changes of the upload backlog, at most once per {@code ui.dashboard.refresh}
+ * (500 ms by default) on a background thread. The totals of the last {@code statistics.retention-days} days are
+ * saved to a small binary file on close and every minute when they changed.
+ */
+public final class ScanStatistics implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanStatistics.class);
+
+    private static final long FILE_MAGIC = 0x5343414E53544131L;
+    private static final Duration SAVE_INTERVAL = Duration.ofMinutes(1);
+
+    private final Path file;
+    private final IntSupplier backlog;
+    private final Duration refresh;
+    private final int retentionDays;
+    private final Map<LocalDate, Aggregate> byDay = new ConcurrentHashMap<>();
+    private final Map<Key, Aggregate> byTeller = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean changed = new AtomicBoolean();
+    private final AtomicBoolean unsaved = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("scan-statistics").factory());
+    private int publishedBacklog = -1;
+    private @Nullable ScheduledFuture<?> publication;
+
+    public ScanStatistics(Path file, IntSupplier backlog, Duration refresh, int retentionDays) {
+        this.file = file;
+        this.backlog = backlog;
+        this.refresh = refresh;
+        this.retentionDays = retentionDays;
+        load();
+        scheduler.scheduleWithFixedDelay(this::saveIfChanged, SAVE_INTERVAL.toMillis(), SAVE_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public static ScanStatistics getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public void recordScan(ScanRegistrationOutput scan) {
+        var day = scan.date().toLocalDate();
+        var cents = scan.amount() == null ? 0 : scan.amount().setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+        for (var aggregate : aggregates(day, scan.appId())) {
+            aggregate.scanned.increment();
+            aggregate.cents.add(cents);
+        }
+        touch();
+    }
+
+    /**
+     * A cheque on which OCR found no CMC.
+     */
+    public void recordFailure(UUID teller) {
+        for (var aggregate : aggregates(LocalDate.now(), teller)) aggregate.failures.increment();
+        touch();
+    }
+
+    public DayStatistics of(LocalDate day) {
+        var tellers = new HashMap<UUID, Counts>();
+        byTeller.forEach((key, aggregate) -> {
+            if (key.day().equals(day)) tellers.put(key.teller(), aggregate.counts());
+        });
+        var total = byDay.get(day);
+        return new DayStatistics(day, total == null ? Counts.NONE : total.counts(), Map.copyOf(tellers), backlog.getAsInt());
+    }
+
+    public DayStatistics today() {
+        return of(LocalDate.now());
+    }
+
+    /**
+     * Starts the throttled notifications with the first listener.
+     */
+    public synchronized void addListener(Runnable listener) {
+        listeners.addIfAbsent(listener);
+        if (publication != null || scheduler.isShutdown()) return;
+        publishedBacklog = -1;
+        publication = scheduler.scheduleWithFixedDelay(this::publish, 0, refresh.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the notifications, and the polling of the backlog, with the last listener.
+     */
+    public synchronized void removeListener(Runnable listener) {
+        listeners.remove(listener);
+        if (!listeners.isEmpty() || publication == null) return;
+        publication.cancel(false);
+        publication = null;
+    }
+
+    private void publish() {
+        var currentBacklog = backlog.getAsInt();
+        if (!changed.getAndSet(false) && currentBacklog == publishedBacklog) return;
+        publishedBacklog = currentBacklog;
+        for (var listener : listeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                LOGGER.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    private List<Aggregate> aggregates(LocalDate day, UUID teller) {
+        return List.of(byDay.computeIfAbsent(day, _ -> new Aggregate()),
+                byTeller.computeIfAbsent(new Key(day, teller), _ -> new Aggregate()));
+    }
+
+    private void touch() {
+        changed.set(true);
+        unsaved.set(true);
+    }
+
+    /**
+     * File layout: magic, row count, then per row the epoch day, a teller flag and UUID, and the three sums. A row
+     * without teller holds the totals of its day. An unreadable file is ignored: the totals start again from zero
+     * rather than keeping the application from starting.
+     */
+    private void load() {
+        if (!Files.exists(file)) return;
+        var oldest = LocalDate.now().minusDays(retentionDays).toEpochDay();
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readLong() != FILE_MAGIC) {
+                LOGGER.warn("Ignoring unknown scan statistics file {}", file);
+                return;
+            }
+            for (int rows = in.readInt(); rows > 0; rows--) {
+                var epochDay = in.readLong();
+                var teller = in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+                var scanned = in.readLong();
+                var failures = in.readLong();
+                var cents = in.readLong();
+                if (epochDay < oldest) continue;
+                var day = LocalDate.ofEpochDay(epochDay);
+                var aggregate = teller == null
+                        ? byDay.computeIfAbsent(day, _ -> new Aggregate())
+                        : byTeller.computeIfAbsent(new Key(day, teller), _ -> new Aggregate());
+                aggregate.scanned.add(scanned);
+                aggregate.failures.add(failures);
+                aggregate.cents.add(cents);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Ignoring unreadable scan statistics file {}: {}", file, e.getMessage());
+            byDay.clear();
+            byTeller.clear();
+        }
+    }
+
+    private void save() throws IOException {
+        var oldest = LocalDate.now().minusDays(retentionDays);
+        byDay.keySet().removeIf(day -> day.isBefore(oldest));
+        byTeller.keySet().removeIf(key -> key.day().isBefore(oldest));
+        var days = Map.copyOf(byDay);
+        var tellers = Map.copyOf(byTeller);
+        Files.createDirectories(file.getParent());
+        var temporary = file.resolveSibling(STR."\{file.getFileName()}.tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeLong(FILE_MAGIC);
+            out.writeInt(days.size() + tellers.size());
+            for (var day : days.entrySet()) write(out, day.getKey(), null, day.getValue());
+            for (var teller : tellers.entrySet()) write(out, teller.getKey().day(), teller.getKey().teller(), teller.getValue());
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void write(DataOutputStream out, LocalDate day, @Nullable UUID teller, Aggregate aggregate) throws IOException {
+        out.writeLong(day.toEpochDay());
+        out.writeBoolean(teller != null);
+        if (teller != null) {
+            out.writeLong(teller.getMostSignificantBits());
+            out.writeLong(teller.getLeastSignificantBits());
+        }
+        out.writeLong(aggregate.scanned.sum());
+        out.writeLong(aggregate.failures.sum());
+        out.writeLong(aggregate.cents.sum());
+    }
+
+    private void saveIfChanged() {
+        if (!unsaved.getAndSet(false)) return;
+        try {
+            save();
+        } catch (IOException e) {
+            unsaved.set(true);
+            LOGGER.warn("Cannot save the scan statistics: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        saveIfChanged();
+    }
+
+    /**
+     * @param backlog scans waiting to be uploaded, whatever their day
+     */
+    public record DayStatistics(LocalDate day, Counts total, Map<UUID, Counts> byTeller, int backlog) {
+    }
+
+    public record Counts(long scanned, long failures, BigDecimal amount) {
+
+        static final Counts NONE = new Counts(0, 0, BigDecimal.ZERO.setScale(2));
+
+        /**
+         * Share of the cheques read on which OCR failed, from {@code 0} to {@code 1}.
+         */
+        public double failureRate() {
+            var read = scanned + failures;
+            return read == 0 ? 0 : failures / (double) read;
+        }
+    }
+
+    private record Key(LocalDate day, UUID teller) {
+    }
+
+    private static final class Aggregate {
+        private final LongAdder scanned = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder cents = new LongAdder();
+
+        Counts counts() {
+            return new Counts(scanned.sum(), failures.sum(), BigDecimal.valueOf(cents.sum(), 2));
+        }
+    }
+
+    private static final class Holder {
+        private static final ScanStatistics INSTANCE = new ScanStatistics(AppConfig.APP_HOME.resolve("statistics.bin"),
+                FileScanOutbox.getInstance()::depth, AppConfig.getDuration("ui.dashboard.refresh", Duration.ofMillis(500)),
+                AppConfig.getInt("statistics.retention-days", 31));
+    }
+}
@@ -2,33 +2,26 @@ package sn.finappli.cdcscanner.service.impl;
 
 import sn.finappli.cdcscanner.service.ScannerService;
 
-import javax.print.PrintService;
-import java.util.concurrent.TimeUnit;
+public class ScannerServiceImpl implements ScannerService, AutoCloseable {
 
-public class ScannerServiceImpl implements ScannerService {
+    private final PrinterPublisher printerPublisher = new PrinterPublisher();
+    private DeviceWatcher deviceWatcher;
 
     @Override
-    public void listAllConnectedPrinters() throws InterruptedException {
-        PrinterPublisher printerPublisher = new PrinterPublisher();
-        PrinterSubscriber printerSubscriber = new PrinterSubscriber();
-
-        // Subscribe the subscriber to the publisher
-        printerPublisher.subscribe(printerSubscriber);
+    public synchronized void listAllConnectedPrinters() {
+        if (deviceWatcher != null) return;
+        printerPublisher.subscribe(new PrinterSubscriber());
+        deviceWatcher = DeviceWatcher.systemPrinters(printerPublisher);
+        deviceWatcher.start();
+    }
 
-        // Simulate a new printer being added while the app is running
-        new Thread(() -> {
-            try {
-                TimeUnit.SECONDS.sleep(5); // Wait for 5 seconds
-                // Add a new printer
-                PrintService newPrinter = new SimulatedPrinter("New Printer");
-                printerPublisher.notifyPrintersChanged();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-        }).start();
+    public PrinterPublisher getPrinterPublisher() {
+        return printerPublisher;
+    }
 
-        // Sleep to keep the main thread alive for a while
-        TimeUnit.SECONDS.sleep(10);
+    @Override
+    public synchronized void close() {
+        if (deviceWatcher != null) deviceWatcher.close();
+        printerPublisher.close();
     }
 }
-
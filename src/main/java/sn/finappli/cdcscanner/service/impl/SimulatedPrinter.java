@@ -8,15 +8,29 @@ import javax.print.attribute.Attribute;
 import javax.print.attribute.AttributeSet;
 import javax.print.attribute.PrintServiceAttribute;
 import javax.print.attribute.PrintServiceAttributeSet;
+import javax.print.event.PrintServiceAttributeEvent;
 import javax.print.event.PrintServiceAttributeListener;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class SimulatedPrinter implements PrintService {
     private String name;
+    private volatile PrintServiceAttributeSet attributes;
+    private final List<PrintServiceAttributeListener> listeners = new CopyOnWriteArrayList<>();
 
     public SimulatedPrinter(String name) {
         this.name = name;
     }
 
+    /**
+     * Replaces the attributes of the printer and notifies the registered listeners, as a driver would.
+     */
+    public void setAttributes(PrintServiceAttributeSet attributes) {
+        this.attributes = attributes;
+        var event = new PrintServiceAttributeEvent(this, attributes);
+        listeners.forEach(listener -> listener.attributeUpdate(event));
+    }
+
     @Override
     public String getName() {
         return name;
@@ -29,17 +43,17 @@ public class SimulatedPrinter implements PrintService {
 
     @Override
     public void addPrintServiceAttributeListener(PrintServiceAttributeListener listener) {
-
+        listeners.add(listener);
     }
 
     @Override
     public void removePrintServiceAttributeListener(PrintServiceAttributeListener listener) {
-
+        listeners.remove(listener);
     }
 
     @Override
     public PrintServiceAttributeSet getAttributes() {
-        return null;
+        return attributes;
     }
 
     @Override
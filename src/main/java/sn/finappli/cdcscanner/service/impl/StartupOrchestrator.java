@@ -0,0 +1,103 @@
+package sn.finappli.cdcscanner.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sn.finappli.cdcscanner.utility.Metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the independent startup phases concurrently, each on its own virtual thread, and times them.
+ */
+public final class StartupOrchestrator implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupOrchestrator.class);
+
+    private final long origin = System.nanoTime();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<CompletableFuture<?>> phases = Collections.synchronizedList(new ArrayList<>());
+    private final List<Phase> timings = Collections.synchronizedList(new ArrayList<>());
+
+    public <T> CompletableFuture<T> run(String name, Callable<T> task) {
+        var future = CompletableFuture.supplyAsync(() -> {
+            var start = System.nanoTime();
+            var failed = true;
+            try {
+                var result = task.call();
+                failed = false;
+                return result;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                Metrics.latency(STR."startup.\{name}").recordSince(start);
+                timings.add(new Phase(name, millisSince(origin, start), millisSince(start, System.nanoTime()), failed));
+            }
+        }, executor);
+        phases.add(future);
+        return future;
+    }
+
+    public CompletableFuture<Void> run(String name, PhaseTask task) {
+        return run(name, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Completes once every phase submitted so far has finished, successfully or not.
+     */
+    public CompletableFuture<Void> whenAllDone() {
+        CompletableFuture<?>[] submitted;
+        synchronized (phases) {
+            submitted = phases.stream().map(phase -> phase.handle((_, _) -> null)).toArray(CompletableFuture[]::new);
+        }
+        return CompletableFuture.allOf(submitted);
+    }
+
+    public long elapsedMillis() {
+        return millisSince(origin, System.nanoTime());
+    }
+
+    public String report() {
+        var report = new StringBuilder("Startup report (").append(elapsedMillis()).append(" ms)");
+        synchronized (timings) {
+            timings.stream().sorted((a, b) -> Long.compare(a.startedAt(), b.startedAt())).forEach(phase ->
+                    report.append("\n  %-14s started at %5d ms, took %5d ms%s".formatted(
+                            phase.name(), phase.startedAt(), phase.duration(), phase.failed() ? " (FAILED)" : "")));
+        }
+        return report.toString();
+    }
+
+    public void logReport() {
+        LOGGER.info(report());
+    }
+
+    private static long millisSince(long from, long to) {
+        return TimeUnit.NANOSECONDS.toMillis(to - from);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    @FunctionalInterface
+    public interface PhaseTask {
+        void run() throws Exception;
+    }
+
+    private record Phase(String name, long startedAt, long duration, boolean failed) {
+    }
+}
@@ -0,0 +1,74 @@
+package sn.finappli.cdcscanner.service.impl;
+
+import sn.finappli.cdcscanner.model.output.ChequeReading;
+import sn.finappli.cdcscanner.model.output.ScanImage;
+import sn.finappli.cdcscanner.service.OCRReader;
+import sn.finappli.cdcscanner.utility.AppConfig;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An {@link OCRReader} answering scripted readings, by file name, after a fixed delay. Stands in for Tesseract
+ * where it is not installed, and lets the OCR chain be exercised with known confidences
+ * ({@code ocr.engine=stub}).
+ */
+public class StubOCRReader implements OCRReader {
+
+    private final Map<String, ChequeReading> readings;
+    private final ChequeReading otherwise;
+    private final Duration latency;
+    private final LongAdder calls = new LongAdder();
+
+    public StubOCRReader(Map<String, ChequeReading> readings, ChequeReading otherwise, Duration latency) {
+        this.readings = Map.copyOf(readings);
+        this.otherwise = otherwise;
+        this.latency = latency;
+    }
+
+    public static StubOCRReader of(ChequeReading reading) {
+        return new StubOCRReader(Map.of(), reading, Duration.ZERO);
+    }
+
+    public static StubOCRReader fromConfig() {
+        return new StubOCRReader(Map.of(), ChequeReading.ofCmc(AppConfig.getString("ocr.stub.cmc", "0000000")),
+                AppConfig.getDuration("ocr.stub.latency", Duration.ZERO));
+    }
+
+    @Override
+    public String read(File file) {
+        return readCheque(file).cmc();
+    }
+
+    @Override
+    public ChequeReading readCheque(File file) {
+        return answer(file.getName());
+    }
+
+    /**
+     * Pages in memory have no name, they get the default reading.
+     */
+    @Override
+    public ChequeReading readCheque(ScanImage page) {
+        return answer("");
+    }
+
+    private ChequeReading answer(String name) {
+        calls.increment();
+        if (latency.isPositive()) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return ChequeReading.ofCmc("");
+            }
+        }
+        return readings.getOrDefault(name, otherwise);
+    }
+
+    public long getCallCount() {
+        return calls.sum();
+    }
+}
@@ -0,0 +1,104 @@
+package sn.finappli.cdcscanner.service.impl;
+
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.Tesseract;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.Rectangle;
+import java.awt.image.RenderedImage;
+import java.io.IOException;
+
+/**
+ * A {@link Tesseract} that keeps its native handle, and therefore its loaded language model, between calls.
+ * {@code Tesseract.doOCR} initialises and disposes the handle on every invocation; this engine does it once.
+ * Not thread-safe: an engine is only ever used by the thread that borrowed it from {@link TesseractEnginePool}.
+ */
+public class TesseractEngine extends Tesseract implements AutoCloseable {
+
+    private static final String WHITELIST = "tessedit_char_whitelist";
+    private static final String DIGITS = "0123456789";
+
+    private boolean initialised;
+    private int pageSegMode = ITessAPI.TessPageSegMode.PSM_SINGLE_BLOCK;
+
+    public TesseractEngine(String datapath, String language) {
+        setDatapath(datapath);
+        setLanguage(language);
+    }
+
+    public void open() {
+        if (initialised) return;
+        init();
+        setVariables();
+        initialised = true;
+    }
+
+    public String recognize(RenderedImage image, @Nullable Rectangle region) throws IOException {
+        open();
+        setImage(image);
+        setROI(region);
+        return getOCRText(null, 0);
+    }
+
+    /**
+     * Same as {@link #recognize}, with the confidences Tesseract gave to what it read.
+     */
+    public Recognition recognizeScored(RenderedImage image, @Nullable Rectangle region) throws IOException {
+        var text = recognize(image, region);
+        return new Recognition(text, getAPI().TessBaseAPIMeanTextConf(getHandle()), minWordConfidence());
+    }
+
+    /**
+     * Cheap pass over an image holding a single line of digits: no layout analysis and a digits-only classifier.
+     * The regular configuration is restored afterwards.
+     */
+    public Recognition recognizeDigitLine(RenderedImage image) throws IOException {
+        open();
+        var api = getAPI();
+        var handle = getHandle();
+        var whitelist = api.TessBaseAPIGetStringVariable(handle, WHITELIST);
+        api.TessBaseAPISetPageSegMode(handle, ITessAPI.TessPageSegMode.PSM_SINGLE_LINE);
+        api.TessBaseAPISetVariable(handle, WHITELIST, DIGITS);
+        try {
+            return recognizeScored(image, null);
+        } finally {
+            api.TessBaseAPISetVariable(handle, WHITELIST, whitelist != null ? whitelist : "");
+            api.TessBaseAPISetPageSegMode(handle, pageSegMode);
+        }
+    }
+
+    private int minWordConfidence() {
+        var confidences = getAPI().TessBaseAPIAllWordConfidences(getHandle());
+        if (confidences == null) return 0;
+        var pointer = confidences.getPointer();
+        var min = 100;
+        var count = 0;
+        for (int confidence; (confidence = pointer.getInt(4L * count)) != -1; count++) {
+            min = Math.min(min, confidence);
+        }
+        getAPI().TessDeleteIntArray(pointer.getByteBuffer(0, 4L * (count + 1)).asIntBuffer());
+        return count == 0 ? 0 : min;
+    }
+
+    @Override
+    public void setPageSegMode(int mode) {
+        super.setPageSegMode(mode);
+        pageSegMode = mode;
+    }
+
+    @Override
+    public void close() {
+        if (!initialised) return;
+        dispose();
+        initialised = false;
+    }
+
+    /**
+     * Text read by one pass.
+     *
+     * @param meanConfidence    mean confidence of the text, from {@code 0} to {@code 100}
+     * @param minWordConfidence confidence of the least certain word, {@code 0} when no word was read
+     */
+    public record Recognition(String text, int meanConfidence, int minWordConfidence) {
+    }
+}
@@ -0,0 +1,192 @@
+package sn.finappli.cdcscanner.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sn.finappli.cdcscanner.utility.AppConfig;
+import sn.finappli.cdcscanner.utility.LatencyRecorder;
+import sn.finappli.cdcscanner.utility.Metrics;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of pre-initialised {@link TesseractEngine}s, sized to the number of cores by default.
+ * A borrowed engine is confined to the borrowing thread until it is handed back; an engine whose
+ * call failed is closed and replaced by a fresh one on the next demand.
+ */
+public final class TesseractEnginePool implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TesseractEnginePool.class);
+
+    private final int size;
+    private final Duration acquireTimeout;
+    private final Supplier<TesseractEngine> factory;
+    private final BlockingQueue<TesseractEngine> idle;
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger recycled = new AtomicInteger();
+    private final LatencyRecorder waitLatency = Metrics.latency("ocr.pool.wait");
+    private final LatencyRecorder ocrLatency = Metrics.latency("ocr.duration");
+    private volatile boolean closed;
+
+    public TesseractEnginePool(int size, Duration acquireTimeout, Supplier<TesseractEngine> factory) {
+        if (size < 1) throw new IllegalArgumentException("POOL_SIZE_MUST_BE_POSITIVE");
+        this.size = size;
+        this.acquireTimeout = acquireTimeout;
+        this.factory = factory;
+        this.idle = new ArrayBlockingQueue<>(size);
+    }
+
+    public static TesseractEnginePool getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * A separate pool of engines loaded with another language model, for a second opinion on hard cheques.
+     */
+    public static TesseractEnginePool forLanguage(String language, int size) {
+        return new TesseractEnginePool(size, AppConfig.getDuration("ocr.pool.acquire-timeout", Duration.ofSeconds(30)),
+                () -> Holder.newEngine(language));
+    }
+
+    /**
+     * Creates and initialises every engine up-front so that the first scans do not pay for loading the model.
+     */
+    public void warmUp() {
+        var start = System.nanoTime();
+        var threads = new ArrayList<Thread>();
+        while (!closed && reserveSlot()) {
+            threads.add(Thread.ofPlatform().name("ocr-warmup-", threads.size()).start(() -> {
+                var engine = newEngine();
+                if (engine != null) idle.offer(engine);
+            }));
+        }
+        for (var thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        LOGGER.info("OCR pool warmed up: {} engines in {} ms", idle.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    public <T> T withEngine(EngineCallback<T> callback) throws IOException, InterruptedException {
+        var engine = acquire();
+        var healthy = false;
+        var start = System.nanoTime();
+        try {
+            var result = callback.apply(engine);
+            healthy = true;
+            return result;
+        } finally {
+            ocrLatency.recordSince(start);
+            release(engine, healthy);
+        }
+    }
+
+    private TesseractEngine acquire() throws InterruptedException {
+        if (closed) throw new IllegalStateException("OCR_POOL_CLOSED");
+        var start = System.nanoTime();
+        try {
+            var engine = idle.poll();
+            if (engine != null) return engine;
+            if (reserveSlot()) {
+                engine = newEngine();
+                if (engine != null) return engine;
+            }
+            engine = idle.poll(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (engine == null) throw new IllegalStateException("OCR_ENGINE_UNAVAILABLE");
+            return engine;
+        } finally {
+            waitLatency.recordSince(start);
+        }
+    }
+
+    private void release(TesseractEngine engine, boolean healthy) {
+        if (healthy && !closed && idle.offer(engine)) return;
+        if (!healthy) {
+            recycled.incrementAndGet();
+            LOGGER.warn("Recycling OCR engine after a failure");
+        }
+        engine.close();
+        created.decrementAndGet();
+    }
+
+    private boolean reserveSlot() {
+        int current;
+        do {
+            current = created.get();
+            if (current >= size) return false;
+        } while (!created.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private TesseractEngine newEngine() {
+        try {
+            var engine = factory.get();
+            engine.open();
+            return engine;
+        } catch (RuntimeException e) {
+            created.decrementAndGet();
+            LOGGER.error(e.getMessage(), e);
+            return null;
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getRecycledCount() {
+        return recycled.get();
+    }
+
+    public LatencyRecorder getWaitLatency() {
+        return waitLatency;
+    }
+
+    public LatencyRecorder getOcrLatency() {
+        return ocrLatency;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        TesseractEngine engine;
+        while ((engine = idle.poll()) != null) {
+            engine.close();
+            created.decrementAndGet();
+        }
+        LOGGER.info("OCR pool closed. {} - {}", waitLatency.snapshot(), ocrLatency.snapshot());
+    }
+
+    @FunctionalInterface
+    public interface EngineCallback<T> {
+        T apply(TesseractEngine engine) throws IOException;
+    }
+
+    private static final class Holder {
+        private static final TesseractEnginePool INSTANCE = new TesseractEnginePool(
+                AppConfig.getInt("ocr.pool.size", Runtime.getRuntime().availableProcessors()),
+                AppConfig.getDuration("ocr.pool.acquire-timeout", Duration.ofSeconds(30)),
+                () -> newEngine(AppConfig.getString("ocr.language", "fra")));
+
+        private static TesseractEngine newEngine(String language) {
+            var engine = new TesseractEngine(AppConfig.getString("ocr.datapath", System.getenv("tessdata")), language);
+            // images reach the engine already normalised, this spares Tesseract guessing the resolution
+            engine.setVariable("user_defined_dpi", String.valueOf(AppConfig.getInt("ocr.preprocess.dpi", 300)));
+            return engine;
+        }
+    }
+}
@@ -1,42 +1,191 @@
 package sn.finappli.cdcscanner.service.impl;
 
-import net.sourceforge.tess4j.Tesseract;
 import org.apache.commons.lang3.StringUtils;
-import org.jetbrains.annotations.Contract;
-import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import sn.finappli.cdcscanner.model.ChequeTemplate;
+import sn.finappli.cdcscanner.model.output.CheckNumberMatch;
+import sn.finappli.cdcscanner.model.output.ChequeReading;
+import sn.finappli.cdcscanner.model.output.ScanImage;
+import sn.finappli.cdcscanner.service.ImagePreprocessor;
 import sn.finappli.cdcscanner.service.OCRReader;
+import sn.finappli.cdcscanner.utility.AppConfig;
+import sn.finappli.cdcscanner.utility.ImagePages;
+import sn.finappli.cdcscanner.utility.ImageUtils;
+import sn.finappli.cdcscanner.utility.Metrics;
 
+import java.awt.image.BufferedImage;
 import java.io.File;
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
 
+/**
+ * Reads the CMC in escalating passes and stops at the first one it trusts, so that the clean cheques, most of
+ * them, only cost the cheapest pass:
+ * <ol>
+ *     <li>the CMC band, single line, digits only;</li>
+ *     <li>the CMC band with the regular configuration;</li>
+ *     <li>the whole page, when {@code ocr.full-page-fallback} is on.</li>
+ * </ol>
+ * A pass is trusted when the confidence of its match, weighted by Tesseract's confidence in its least certain
+ * word, reaches {@code ocr.confidence.min}. Otherwise the most confident pass wins.
+ */
 public class TesseractOCRReaderImpl implements OCRReader {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TesseractOCRReaderImpl.class);
 
-    private static final String PATTERN = "\\d{7}";
+    private static final CheckNumberExtractor CHECK_NUMBER_EXTRACTOR = new CheckNumberExtractor();
+    private static final Pattern AMOUNT_PATTERN = Pattern.compile("(\\d{1,3}(?:[ .]\\d{3})+|\\d+)(?:[,.](\\d{1,2}))?(?!\\d)");
 
-    @Contract("_ -> !null")
-    private static String extractCheckNumber(@NotNull String text) {
-        if (StringUtils.isBlank(text)) return "";
-        return Arrays.stream(text.split("\\s")).filter(r -> r.matches(PATTERN)).findFirst().orElse("");
+    private final TesseractEnginePool enginePool;
+    private final ChequeTemplate template;
+    private final ImagePreprocessor preprocessor;
+    private final boolean fullPageFallback;
+    private final double minConfidence;
+
+    private final LongAdder fastPasses = Metrics.counter("ocr.pass.fast");
+    private final LongAdder regionPasses = Metrics.counter("ocr.pass.region");
+    private final LongAdder pagePasses = Metrics.counter("ocr.pass.page");
+
+    public TesseractOCRReaderImpl() {
+        this(TesseractEnginePool.getInstance(), ChequeTemplate.getDefault(), PreprocessingPipeline.getInstance());
+    }
+
+    public TesseractOCRReaderImpl(TesseractEnginePool enginePool, ChequeTemplate template, ImagePreprocessor preprocessor) {
+        this.enginePool = enginePool;
+        this.template = template;
+        this.preprocessor = preprocessor;
+        this.fullPageFallback = Boolean.parseBoolean(AppConfig.getString("ocr.full-page-fallback", "true"));
+        this.minConfidence = Double.parseDouble(AppConfig.getString("ocr.confidence.min", "0.7"));
+    }
+
+    private static @Nullable BigDecimal extractAmount(String text) {
+        var matcher = AMOUNT_PATTERN.matcher(text);
+        if (!matcher.find()) return null;
+        var units = matcher.group(1).replace(" ", "").replace(".", "");
+        var cents = matcher.group(2);
+        return new BigDecimal(cents == null ? units : STR."\{units}.\{cents}");
+    }
+
+    private static @Nullable String extractRecipient(String text) {
+        return text.lines().map(String::strip).filter(StringUtils::isNotBlank).findFirst()
+                .map(line -> line.replaceAll("\\s+", " ")).orElse(null);
     }
 
     @Override
     public String read(File file) {
-        var tesseract = new Tesseract();
-        tesseract.setDatapath(System.getenv("tessdata"));
-        tesseract.setLanguage("fra");
+        return readCheque(file).cmc();
+    }
 
+    /**
+     * Reads the first page of the file, decoding only that page.
+     */
+    @Override
+    public ChequeReading readCheque(File file) {
+        try (var pages = ImagePages.of(file.toPath())) {
+            if (pages.hasNext()) return readCheque(pages.next());
+            LOGGER.warn("{} holds no image", file);
+            return ChequeReading.ofCmc("");
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.error(e.getMessage(), e);
+            return ChequeReading.ofCmc("");
+        }
+    }
+
+    /**
+     * Preprocesses the page in memory, then OCRs only the regions of the cheque template and fills every field
+     * from that single read of the page.
+     */
+    @Override
+    public ChequeReading readCheque(ScanImage page) {
         try {
-            var result = tesseract.doOCR(file);
+            var image = preprocessor.apply(page).image();
+            var reading = enginePool.withEngine(engine -> {
+                var cmc = readCmc(engine, image);
+                var amountText = recognize(engine, image, ChequeTemplate.Field.AMOUNT);
+                var recipientText = recognize(engine, image, ChequeTemplate.Field.RECIPIENT);
 
-            LOGGER.info(STR."Extracted Text: \n\{result}");
-            return extractCheckNumber(result);
+                var text = String.join("\n", cmc.text(), amountText, recipientText);
+                return new ChequeReading(cmc.match().value(), extractAmount(amountText), extractRecipient(recipientText),
+                        text, cmc.confidence());
+            });
+
+            LOGGER.debug("Extracted text:\n{}", reading.text());
+            return reading;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error(e.getMessage(), e);
+            return ChequeReading.ofCmc("");
         } catch (Exception e) {
             LOGGER.error(e.getMessage(), e);
-            return "";
+            return ChequeReading.ofCmc("");
+        }
+    }
+
+    private CmcPass readCmc(TesseractEngine engine, BufferedImage image) throws IOException {
+        var band = crop(image, ChequeTemplate.Field.CMC);
+        var best = CmcPass.NONE;
+        if (band != null) {
+            fastPasses.increment();
+            best = score(engine.recognizeDigitLine(band));
+            if (best.confidence() >= minConfidence) return best;
+
+            regionPasses.increment();
+            best = better(best, score(engine.recognizeScored(band, null)));
+            if (best.confidence() >= minConfidence) return best;
+        }
+        if (fullPageFallback) {
+            pagePasses.increment();
+            best = better(best, score(engine.recognizeScored(image, null)));
         }
+        LOGGER.debug("CMC read with a confidence of {}", best.confidence());
+        return best;
+    }
+
+    private static CmcPass score(TesseractEngine.Recognition recognition) {
+        var match = CHECK_NUMBER_EXTRACTOR.extract(recognition.text());
+        return new CmcPass(recognition.text(), match, match.confidence() * recognition.minWordConfidence() / 100.0);
+    }
+
+    private static CmcPass better(CmcPass current, CmcPass candidate) {
+        return candidate.confidence() > current.confidence() ? candidate : current;
+    }
+
+    private String recognize(TesseractEngine engine, BufferedImage image, ChequeTemplate.Field field) throws IOException {
+        var crop = crop(image, field);
+        return crop == null ? "" : engine.recognize(crop, null);
+    }
+
+    private @Nullable BufferedImage crop(BufferedImage image, ChequeTemplate.Field field) {
+        var region = template.region(field);
+        if (region == null) return null;
+        var crop = ImageUtils.crop(image, region.toRectangle(image.getWidth(), image.getHeight()));
+        crop = ImageUtils.scaleToHeight(crop, region.maxHeight());
+        if (region.binarize()) crop = ImageUtils.binarize(crop);
+        return crop;
+    }
+
+    /**
+     * Number of cheques that went through each pass. Every cheque goes through the first one, the difference with
+     * the next one is what the gating saves.
+     */
+    public long getFastPasses() {
+        return fastPasses.sum();
+    }
+
+    public long getRegionPasses() {
+        return regionPasses.sum();
+    }
+
+    public long getPagePasses() {
+        return pagePasses.sum();
+    }
+
+    private record CmcPass(String text, CheckNumberMatch match, double confidence) {
+        static final CmcPass NONE = new CmcPass("", CheckNumberMatch.NONE, 0);
     }
 }
@@ -0,0 +1,90 @@
+package sn.finappli.cdcscanner.utility;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Application settings. A key is resolved from the JVM system properties first ({@code -Docr.pool.size=4}),
+ * then from the environment ({@code OCR_POOL_SIZE=4}) and finally from {@code ~/.cdc-scanner/application.properties}.
+ */
+public final class AppConfig {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AppConfig.class);
+
+    public static final Path APP_HOME = Path.of(System.getProperty("user.home"), ".cdc-scanner");
+    private static final Path CONFIG_FILE = APP_HOME.resolve("application.properties");
+
+    private static volatile Properties fileProperties;
+
+    private AppConfig() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    public static @Nullable String get(String key) {
+        var value = System.getProperty(key);
+        if (value == null) value = System.getenv(key.toUpperCase(Locale.ROOT).replace('.', '_').replace('-', '_'));
+        if (value == null) value = fileProperties().getProperty(key);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    public static String getString(String key, String defaultValue) {
+        var value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        var value = get(key);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException _) {
+            LOGGER.warn("Invalid integer for {}: {}", key, value);
+            return defaultValue;
+        }
+    }
+
+    public static Duration getDuration(String key, Duration defaultValue) {
+        var value = get(key);
+        if (value == null) return defaultValue;
+        try {
+            return Duration.ofMillis(Long.parseLong(value));
+        } catch (NumberFormatException _) {
+            LOGGER.warn("Invalid duration (ms) for {}: {}", key, value);
+            return defaultValue;
+        }
+    }
+
+    private static Properties fileProperties() {
+        var properties = fileProperties;
+        if (properties == null) {
+            properties = load();
+            fileProperties = properties;
+        }
+        return properties;
+    }
+
+    /**
+     * (Re)reads the configuration file.
+     */
+    public static Properties load() {
+        var properties = new Properties();
+        if (Files.isReadable(CONFIG_FILE)) {
+            try (InputStream in = Files.newInputStream(CONFIG_FILE)) {
+                properties.load(in);
+            } catch (IOException e) {
+                LOGGER.warn(e.getMessage(), e);
+            }
+        }
+        fileProperties = properties;
+        return properties;
+    }
+}
@@ -0,0 +1,156 @@
+package sn.finappli.cdcscanner.utility;
+
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.concurrent.Worker;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * A unit of background work as seen from the UI. Progress, message and state are JavaFX properties meant to be
+ * bound to controls; they are only ever written on the FX thread, through the {@link FrameCoalescer}, at most once
+ * per frame. Callbacks registered with {@link #onSucceeded} and {@link #onFailed} also run on the FX thread.
+ */
+public final class BackgroundTask<T> implements Progress {
+
+    private final ReadOnlyDoubleWrapper progress = new ReadOnlyDoubleWrapper(-1);
+    private final ReadOnlyStringWrapper message = new ReadOnlyStringWrapper("");
+    private final ReadOnlyObjectWrapper<Worker.State> state = new ReadOnlyObjectWrapper<>(Worker.State.SCHEDULED);
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private final FrameCoalescer coalescer;
+
+    private volatile double latestProgress = -1;
+    private volatile String latestMessage = "";
+    private volatile Worker.State latestState = Worker.State.SCHEDULED;
+    private volatile @Nullable Future<?> future;
+    private @Nullable Consumer<T> onSucceeded;
+    private @Nullable Consumer<Throwable> onFailed;
+    private boolean notified;
+
+    BackgroundTask(FrameCoalescer coalescer) {
+        this.coalescer = coalescer;
+    }
+
+    void run(Work<T> work) {
+        if (result.isDone()) return;
+        transition(Worker.State.RUNNING);
+        try {
+            var value = work.run(this);
+            if (isCancelled()) return;
+            latestProgress = 1;
+            result.complete(value);
+            transition(Worker.State.SUCCEEDED);
+        } catch (InterruptedException | CancellationException e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            cancel();
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+            transition(Worker.State.FAILED);
+        }
+    }
+
+    void attach(Future<?> future) {
+        this.future = future;
+        if (isCancelled()) future.cancel(true);
+    }
+
+    @Override
+    public void update(long done, long total) {
+        latestProgress = total <= 0 ? -1 : Math.min(1, (double) done / total);
+        publish();
+    }
+
+    @Override
+    public void message(String message) {
+        latestMessage = message;
+        publish();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return latestState == Worker.State.CANCELLED;
+    }
+
+    /**
+     * Interrupts the work if it is running; it is never started if it was still queued.
+     */
+    public boolean cancel() {
+        if (result.isDone() && !isCancelled()) return false;
+        result.cancel(false);
+        transition(Worker.State.CANCELLED);
+        var running = future;
+        if (running != null) running.cancel(true);
+        return true;
+    }
+
+    public CompletableFuture<T> result() {
+        return result;
+    }
+
+    /**
+     * Must be called on the FX thread.
+     */
+    public BackgroundTask<T> onSucceeded(Consumer<T> callback) {
+        onSucceeded = callback;
+        return this;
+    }
+
+    /**
+     * Must be called on the FX thread.
+     */
+    public BackgroundTask<T> onFailed(Consumer<Throwable> callback) {
+        onFailed = callback;
+        return this;
+    }
+
+    public ReadOnlyDoubleProperty progressProperty() {
+        return progress.getReadOnlyProperty();
+    }
+
+    public ReadOnlyStringProperty messageProperty() {
+        return message.getReadOnlyProperty();
+    }
+
+    public ReadOnlyObjectProperty<Worker.State> stateProperty() {
+        return state.getReadOnlyProperty();
+    }
+
+    private void transition(Worker.State next) {
+        var current = latestState;
+        if (current == Worker.State.SUCCEEDED || current == Worker.State.FAILED || current == Worker.State.CANCELLED) return;
+        latestState = next;
+        publish();
+    }
+
+    private void publish() {
+        coalescer.post(this, this::applyToUi);
+    }
+
+    private void applyToUi() {
+        progress.set(latestProgress);
+        message.set(latestMessage);
+        var current = latestState;
+        state.set(current);
+        if (notified) return;
+        if (current == Worker.State.SUCCEEDED && onSucceeded != null) {
+            notified = true;
+            onSucceeded.accept(result.join());
+        } else if (current == Worker.State.FAILED && onFailed != null) {
+            notified = true;
+            onFailed.accept(result.exceptionNow());
+        }
+    }
+
+    @FunctionalInterface
+    public interface Work<T> {
+        T run(Progress progress) throws Exception;
+    }
+}
@@ -0,0 +1,70 @@
+package sn.finappli.cdcscanner.utility;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Funnels UI updates posted from any thread into at most one run per key and per frame.
+ * <p>
+ * A worker may report progress thousands of times a second; only the latest update of each key is kept and it is
+ * applied on the next JavaFX pulse, so the FX thread does a bounded amount of work per frame whatever the rate of
+ * the producers. The underlying {@link AnimationTimer} only runs while updates are pending.
+ */
+public final class FrameCoalescer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FrameCoalescer.class);
+
+    private final Map<Object, Runnable> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean active = new AtomicBoolean();
+    private AnimationTimer timer;
+
+    public static FrameCoalescer getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Schedules {@code update} for the next frame, replacing the update still pending for {@code key} if any.
+     */
+    public void post(Object key, Runnable update) {
+        pending.put(key, update);
+        if (active.compareAndSet(false, true)) Platform.runLater(this::start);
+    }
+
+    private void start() {
+        if (timer == null) {
+            timer = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    flush();
+                }
+            };
+        }
+        timer.start();
+    }
+
+    private void flush() {
+        for (var entry : pending.entrySet()) {
+            // an update posted meanwhile for the same key stays for the next frame
+            if (!pending.remove(entry.getKey(), entry.getValue())) continue;
+            try {
+                entry.getValue().run();
+            } catch (RuntimeException e) {
+                LOGGER.error(e.getMessage(), e);
+            }
+        }
+        if (!pending.isEmpty()) return;
+        timer.stop();
+        active.set(false);
+        if (!pending.isEmpty() && active.compareAndSet(false, true)) timer.start();
+    }
+
+    private static final class Holder {
+        private static final FrameCoalescer INSTANCE = new FrameCoalescer();
+    }
+}
@@ -0,0 +1,64 @@
+package sn.finappli.cdcscanner.utility;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Where controllers run anything that may block, so that the FX Application Thread only ever renders.
+ * <p>
+ * I/O-bound work (HTTP calls, disk, waiting on other services) runs on virtual threads. CPU-bound work such as
+ * OCR runs on a bounded pool of platform threads ({@code ui.cpu-threads}, one core short of the machine by
+ * default so that the FX thread always has a core to render on), which the OCR pipeline of a screen uses for its
+ * workers.
+ */
+public final class FxTaskExecutor implements AutoCloseable {
+
+    private final ExecutorService io = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ui-io-", 0).factory());
+    private final ExecutorService cpu;
+    private final FrameCoalescer coalescer;
+
+    public FxTaskExecutor(int cpuThreads, FrameCoalescer coalescer) {
+        this.cpu = Executors.newFixedThreadPool(cpuThreads, Thread.ofPlatform().daemon().name("ui-cpu-", 0).factory());
+        this.coalescer = coalescer;
+    }
+
+    public static FxTaskExecutor getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public <T> BackgroundTask<T> submitIo(BackgroundTask.Work<T> work) {
+        return submit(io, work);
+    }
+
+    /**
+     * The bounded pool for CPU-bound work that fans itself out, such as the workers of a
+     * {@code BatchOCRPipeline}. It belongs to this executor and must not be shut down by its users.
+     */
+    public ExecutorService cpuPool() {
+        return cpu;
+    }
+
+    private <T> BackgroundTask<T> submit(ExecutorService executor, BackgroundTask.Work<T> work) {
+        var task = new BackgroundTask<T>(coalescer);
+        task.attach(executor.submit(() -> task.run(work)));
+        return task;
+    }
+
+    @Override
+    public void close() {
+        io.shutdownNow();
+        cpu.shutdownNow();
+        try {
+            cpu.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Holder {
+        private static final FxTaskExecutor INSTANCE = new FxTaskExecutor(
+                AppConfig.getInt("ui.cpu-threads", Math.max(1, Runtime.getRuntime().availableProcessors() - 1)),
+                FrameCoalescer.getInstance());
+    }
+}
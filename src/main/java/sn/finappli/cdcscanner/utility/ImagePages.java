@@ -0,0 +1,262 @@
+package sn.finappli.cdcscanner.utility;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.jetbrains.annotations.Nullable;
+import sn.finappli.cdcscanner.model.output.ScanImage;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageInputStreamImpl;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The pages of an encoded document (multi-page TIFF, PDF, PNG, JPEG...) decoded one at a time, when they are asked
+ * for. Only the page being handed out is held in memory, and nothing goes through a temporary file: files are read
+ * in place, buffers without being copied and streams through a memory cache that the reader may discard as it
+ * moves forward. A page of a stream can therefore be processed while the next ones are still being received.
+ * <p>
+ * PDF pages are rendered at {@code ocr.pdf.dpi} (300 by default). A PDF needs random access, so one read from a
+ * stream is first buffered whole.
+ * <p>
+ * Closing the pages does not close a stream they were read from.
+ */
+public final class ImagePages implements Iterator<ScanImage>, Closeable {
+
+    private static final byte[] PDF_MAGIC = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+    private static final int PDF_DPI = AppConfig.getInt("ocr.pdf.dpi", 300);
+
+    private final Decoder decoder;
+    private int index;
+    private ScanImage next;
+    private boolean exhausted;
+
+    private ImagePages(Decoder decoder) {
+        this.decoder = decoder;
+    }
+
+    public static ImagePages of(Path file) throws IOException {
+        if (startsWithPdfMagic(file)) return new ImagePages(new PdfDecoder(Loader.loadPDF(file.toFile())));
+        return new ImagePages(ImageDecoder.open(new FileImageInputStream(file.toFile()), true));
+    }
+
+    public static ImagePages of(ByteBuffer encoded) throws IOException {
+        var buffer = encoded.slice();
+        if (startsWithPdfMagic(buffer)) return new ImagePages(new PdfDecoder(Loader.loadPDF(new RandomAccessReadBuffer(buffer))));
+        return new ImagePages(ImageDecoder.open(new ByteBufferImageInputStream(buffer), true));
+    }
+
+    public static ImagePages of(InputStream in) throws IOException {
+        var buffered = in.markSupported() ? in : new BufferedInputStream(in);
+        buffered.mark(PDF_MAGIC.length);
+        var head = buffered.readNBytes(PDF_MAGIC.length);
+        buffered.reset();
+        if (Arrays.equals(head, PDF_MAGIC)) {
+            return new ImagePages(new PdfDecoder(Loader.loadPDF(RandomAccessReadBuffer.createBufferFromStream(buffered))));
+        }
+        return new ImagePages(ImageDecoder.open(new MemoryCacheImageInputStream(buffered), false));
+    }
+
+    /**
+     * The number of pages, or {@code -1} when it is only known once a forward-only stream has been read through.
+     */
+    public int size() throws IOException {
+        return decoder.size();
+    }
+
+    /**
+     * Decodes the page {@code index}, or returns {@code null} past the last page. Pages of a file or a buffer can be
+     * read in any order, so a corrupt page does not prevent reading the ones after it; pages of a stream are read
+     * forward only.
+     */
+    public @Nullable ScanImage read(int index) throws IOException {
+        return decoder.read(index);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) return true;
+        if (exhausted) return false;
+        try {
+            next = decoder.read(index);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (next == null) {
+            exhausted = true;
+            return false;
+        }
+        index++;
+        return true;
+    }
+
+    @Override
+    public ScanImage next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        var page = next;
+        next = null;
+        return page;
+    }
+
+    @Override
+    public void close() throws IOException {
+        decoder.close();
+    }
+
+    private static boolean startsWithPdfMagic(Path file) throws IOException {
+        try (var channel = FileChannel.open(file)) {
+            var head = ByteBuffer.allocate(PDF_MAGIC.length);
+            while (head.hasRemaining() && channel.read(head) >= 0) {
+                // reads until the magic is complete or the file ends
+            }
+            return startsWithPdfMagic(head.flip());
+        }
+    }
+
+    private static boolean startsWithPdfMagic(ByteBuffer buffer) {
+        return buffer.remaining() >= PDF_MAGIC.length
+                && buffer.slice(buffer.position(), PDF_MAGIC.length).equals(ByteBuffer.wrap(PDF_MAGIC));
+    }
+
+    private interface Decoder extends Closeable {
+
+        int size() throws IOException;
+
+        @Nullable ScanImage read(int index) throws IOException;
+    }
+
+    /**
+     * Raster formats, through the first {@link ImageReader} that accepts the data.
+     */
+    private static final class ImageDecoder implements Decoder {
+
+        private final ImageInputStream input;
+        private final ImageReader reader;
+        private final boolean seekable;
+
+        private ImageDecoder(ImageInputStream input, ImageReader reader, boolean seekable) {
+            this.input = input;
+            this.reader = reader;
+            this.seekable = seekable;
+        }
+
+        private static ImageDecoder open(ImageInputStream input, boolean seekable) throws IOException {
+            var readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                input.close();
+                throw new IIOException("UNSUPPORTED_IMAGE_FORMAT");
+            }
+            var reader = readers.next();
+            reader.setInput(input, !seekable, false);
+            return new ImageDecoder(input, reader, seekable);
+        }
+
+        @Override
+        public int size() throws IOException {
+            return seekable ? reader.getNumImages(true) : -1;
+        }
+
+        @Override
+        public @Nullable ScanImage read(int index) throws IOException {
+            try {
+                var page = reader.readAll(index, null);
+                return new ScanImage((BufferedImage) page.getRenderedImage(), ImageUtils.dpiOf(page.getMetadata()));
+            } catch (IndexOutOfBoundsException _) {
+                return null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.dispose();
+            input.close();
+        }
+    }
+
+    /**
+     * PDF pages rendered in grey levels. The resource cache is off: pages are rendered once each, and keeping their
+     * images around would make the memory grow with the length of the document.
+     */
+    private static final class PdfDecoder implements Decoder {
+
+        private final PDDocument document;
+        private final PDFRenderer renderer;
+
+        private PdfDecoder(PDDocument document) {
+            this.document = document;
+            document.setResourceCache(null);
+            this.renderer = new PDFRenderer(document);
+        }
+
+        @Override
+        public int size() {
+            return document.getNumberOfPages();
+        }
+
+        @Override
+        public @Nullable ScanImage read(int index) throws IOException {
+            if (index >= document.getNumberOfPages()) return null;
+            return new ScanImage(renderer.renderImageWithDPI(index, PDF_DPI, ImageType.GRAY), PDF_DPI);
+        }
+
+        @Override
+        public void close() throws IOException {
+            document.close();
+        }
+    }
+
+    /**
+     * Random access over a buffer, which is never copied.
+     */
+    private static final class ByteBufferImageInputStream extends ImageInputStreamImpl {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferImageInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkClosed();
+            bitOffset = 0;
+            if (streamPos >= buffer.limit()) return -1;
+            return buffer.get((int) streamPos++) & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            checkClosed();
+            bitOffset = 0;
+            if (streamPos >= buffer.limit()) return -1;
+            var count = (int) Math.min(length, buffer.limit() - streamPos);
+            buffer.get((int) streamPos, bytes, offset, count);
+            streamPos += count;
+            return count;
+        }
+
+        @Override
+        public long length() {
+            return buffer.limit();
+        }
+    }
+}
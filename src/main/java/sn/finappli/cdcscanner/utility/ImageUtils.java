@@ -0,0 +1,157 @@
+package sn.finappli.cdcscanner.utility;
+
+import com.recognition.software.jdeskew.ImageDeskew;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Element;
+
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataFormatImpl;
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+public final class ImageUtils {
+
+    private ImageUtils() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Returns a view on {@code region} sharing the pixels of {@code image}.
+     */
+    public static BufferedImage crop(BufferedImage image, Rectangle region) {
+        var bounds = region.intersection(new Rectangle(image.getWidth(), image.getHeight()));
+        if (bounds.isEmpty()) throw new IllegalArgumentException("REGION_OUTSIDE_IMAGE");
+        return image.getSubimage(bounds.x, bounds.y, bounds.width, bounds.height);
+    }
+
+    public static BufferedImage toGrayscale(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) return image;
+        var gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        var graphics = gray.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return gray;
+    }
+
+    /**
+     * Downscales {@code image} so that it is at most {@code maxHeight} pixels high, keeping its aspect ratio.
+     */
+    public static BufferedImage scaleToHeight(BufferedImage image, int maxHeight) {
+        if (maxHeight <= 0 || image.getHeight() <= maxHeight) return image;
+        return scale(image, (double) maxHeight / image.getHeight());
+    }
+
+    public static BufferedImage scale(BufferedImage image, double factor) {
+        var width = Math.max(1, (int) Math.round(image.getWidth() * factor));
+        var height = Math.max(1, (int) Math.round(image.getHeight() * factor));
+        var type = image.getType() == BufferedImage.TYPE_BYTE_GRAY ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB;
+        var scaled = new BufferedImage(width, height, type);
+        var graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    /**
+     * Resolution declared in the image metadata, {@code 0} when there is none.
+     */
+    public static int dpiOf(@Nullable IIOMetadata metadata) {
+        if (metadata == null || !metadata.isStandardMetadataFormatSupported()) return 0;
+        var root = (Element) metadata.getAsTree(IIOMetadataFormatImpl.standardMetadataFormatName);
+        var sizes = root.getElementsByTagName("HorizontalPixelSize");
+        if (sizes.getLength() == 0) return 0;
+        try {
+            var millimetresPerPixel = Double.parseDouble(((Element) sizes.item(0)).getAttribute("value"));
+            return millimetresPerPixel <= 0 ? 0 : (int) Math.round(25.4 / millimetresPerPixel);
+        } catch (NumberFormatException _) {
+            return 0;
+        }
+    }
+
+    /**
+     * Skew of the text lines in degrees, estimated on a copy at most {@code maxWidth} pixels wide:
+     * the angle does not depend on the scale and the Hough transform cost grows with the pixel count.
+     */
+    public static double skewAngle(BufferedImage image, int maxWidth) {
+        var sample = image.getWidth() > maxWidth ? scale(image, (double) maxWidth / image.getWidth()) : image;
+        return new ImageDeskew(sample).getSkewAngle();
+    }
+
+    /**
+     * Rotates {@code image} around its centre, keeping its size and filling the uncovered corners with white.
+     */
+    public static BufferedImage rotate(BufferedImage image, double degrees) {
+        var type = image.getType() == BufferedImage.TYPE_BYTE_GRAY ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB;
+        var rotated = new BufferedImage(image.getWidth(), image.getHeight(), type);
+        var graphics = rotated.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.rotate(Math.toRadians(degrees), image.getWidth() / 2.0, image.getHeight() / 2.0);
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rotated;
+    }
+
+    /**
+     * Thresholds {@code image} to pure black and white with Otsu's method.
+     */
+    public static BufferedImage binarize(BufferedImage image) {
+        var gray = toGrayscale(image);
+        var width = gray.getWidth();
+        var height = gray.getHeight();
+        var raster = gray.getRaster();
+        var row = new int[width];
+        var histogram = new int[256];
+        for (int y = 0; y < height; y++) {
+            raster.getSamples(0, y, width, 1, 0, row);
+            for (var value : row) histogram[value]++;
+        }
+        var threshold = otsuThreshold(histogram, width * height);
+
+        var binary = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        var target = binary.getRaster();
+        for (int y = 0; y < height; y++) {
+            raster.getSamples(0, y, width, 1, 0, row);
+            for (int x = 0; x < width; x++) row[x] = row[x] > threshold ? 255 : 0;
+            target.setSamples(0, y, width, 1, 0, row);
+        }
+        return binary;
+    }
+
+    private static int otsuThreshold(int[] histogram, int total) {
+        long sum = 0;
+        for (int i = 0; i < histogram.length; i++) sum += (long) i * histogram[i];
+        long sumBackground = 0;
+        int weightBackground = 0;
+        double bestVariance = -1;
+        int threshold = 127;
+        for (int i = 0; i < histogram.length; i++) {
+            weightBackground += histogram[i];
+            if (weightBackground == 0) continue;
+            var weightForeground = total - weightBackground;
+            if (weightForeground == 0) break;
+            sumBackground += (long) i * histogram[i];
+            var meanBackground = (double) sumBackground / weightBackground;
+            var meanForeground = (double) (sum - sumBackground) / weightForeground;
+            var variance = (double) weightBackground * weightForeground * Math.pow(meanBackground - meanForeground, 2);
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                threshold = i;
+            }
+        }
+        return threshold;
+    }
+}
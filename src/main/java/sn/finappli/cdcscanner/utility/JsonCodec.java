@@ -0,0 +1,198 @@
+package sn.finappli.cdcscanner.utility;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The JSON layer of the application. One mapper, and one pre-built compact {@link ObjectWriter} and
+ * {@link ObjectReader} per payload type, so that no call pays for mapper construction or serializer lookup.
+ * Request bodies are written straight to bytes, and batches are streamed as NDJSON one record at a time.
+ */
+public final class JsonCodec {
+
+    private static final JsonMapper MAPPER = JsonMapper.builder()
+            .addModule(new ParameterNamesModule())
+            .addModule(new JavaTimeModule())
+            .defaultTimeZone(TimeZone.getTimeZone("Africa/Dakar"))
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(SerializationFeature.INDENT_OUTPUT)
+            .enable(SerializationFeature.WRITE_ENUMS_USING_TO_STRING)
+            .build();
+
+    private static final Map<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final byte NEW_LINE = '\n';
+
+    private JsonCodec() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    public static ObjectWriter writerFor(Class<?> type) {
+        return WRITERS.computeIfAbsent(type, MAPPER::writerFor);
+    }
+
+    public static ObjectReader readerFor(Class<?> type) {
+        return READERS.computeIfAbsent(type, MAPPER::readerFor);
+    }
+
+    public static String toJson(Object value) throws JsonProcessingException {
+        return writerFor(value.getClass()).writeValueAsString(value);
+    }
+
+    public static byte[] toBytes(Object value) throws JsonProcessingException {
+        return writerFor(value.getClass()).writeValueAsBytes(value);
+    }
+
+    public static <T> T fromJson(String json, Class<T> type) throws JsonProcessingException {
+        return readerFor(type).readValue(json);
+    }
+
+    public static <T> T fromJson(byte[] json, Class<T> type) throws IOException {
+        return readerFor(type).readValue(json);
+    }
+
+    /**
+     * A request body holding {@code value}, encoded directly to UTF-8 bytes.
+     */
+    public static HttpRequest.BodyPublisher body(Object value) throws JsonProcessingException {
+        return HttpRequest.BodyPublishers.ofByteArray(toBytes(value));
+    }
+
+    /**
+     * A newline-delimited JSON body of {@code values}. Each record is only serialised when the HTTP client asks
+     * for the next chunk, so the batch never exists as one big string.
+     */
+    public static HttpRequest.BodyPublisher ndjson(List<?> values) {
+        var iterator = values.iterator();
+        return new NdjsonBodyPublisher(new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public byte[] next() {
+                try {
+                    return toBytes(iterator.next());
+                } catch (JsonProcessingException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Same as {@link #ndjson(List)} for records that are already serialised.
+     */
+    public static HttpRequest.BodyPublisher ndjsonOfRaw(List<String> jsonLines) {
+        var iterator = jsonLines.iterator();
+        return new NdjsonBodyPublisher(new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public byte[] next() {
+                return iterator.next().getBytes(StandardCharsets.UTF_8);
+            }
+        });
+    }
+
+    /**
+     * Emits one buffer per record, on demand. Single use, like the iterator it drains.
+     */
+    private static final class NdjsonBodyPublisher implements HttpRequest.BodyPublisher {
+
+        private final Iterator<byte[]> records;
+        private final AtomicBoolean subscribed = new AtomicBoolean();
+
+        private NdjsonBodyPublisher(Iterator<byte[]> records) {
+            this.records = records;
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            if (!subscribed.compareAndSet(false, true)) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {
+                    }
+
+                    @Override
+                    public void cancel() {
+                    }
+                });
+                subscriber.onError(new IllegalStateException("NDJSON_BODY_ALREADY_CONSUMED"));
+                return;
+            }
+            subscriber.onSubscribe(new Flow.Subscription() {
+                private final AtomicLong demand = new AtomicLong();
+                private final AtomicInteger wip = new AtomicInteger();
+                private volatile boolean done;
+
+                @Override
+                public void request(long n) {
+                    if (n <= 0) {
+                        cancel();
+                        subscriber.onError(new IllegalArgumentException("NON_POSITIVE_DEMAND"));
+                        return;
+                    }
+                    demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+                    if (wip.getAndIncrement() != 0) return;
+                    // the subscriber may request more from onNext; the loop absorbs it instead of recursing
+                    do {
+                        while (!done && demand.get() > 0) {
+                            if (!records.hasNext()) {
+                                done = true;
+                                subscriber.onComplete();
+                                return;
+                            }
+                            ByteBuffer chunk;
+                            try {
+                                var record = records.next();
+                                chunk = ByteBuffer.allocate(record.length + 1).put(record).put(NEW_LINE).flip();
+                            } catch (RuntimeException e) {
+                                done = true;
+                                subscriber.onError(e);
+                                return;
+                            }
+                            demand.decrementAndGet();
+                            subscriber.onNext(chunk);
+                        }
+                    } while (wip.decrementAndGet() != 0);
+                }
+
+                @Override
+                public void cancel() {
+                    done = true;
+                }
+            });
+        }
+    }
+}
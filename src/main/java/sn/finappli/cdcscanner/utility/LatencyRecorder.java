@@ -0,0 +1,99 @@
+package sn.finappli.cdcscanner.utility;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram. Values are kept in log-linear buckets (16 per power of two),
+ * so percentiles are accurate to roughly 6% whatever the magnitude.
+ */
+public final class LatencyRecorder {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+    private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+
+    public LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public void record(long nanos) {
+        var value = Math.max(0, nanos);
+        count.increment();
+        total.add(value);
+        max.accumulateAndGet(value, Math::max);
+        buckets.incrementAndGet(indexOf(value));
+    }
+
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public Snapshot snapshot() {
+        var counts = new long[buckets.length()];
+        long n = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+            n += counts[i];
+        }
+        var mean = n == 0 ? 0 : total.sum() / (double) count.sum();
+        var highest = max.get();
+        return new Snapshot(name, n, mean / NANOS_PER_MILLI,
+                percentile(counts, n, 0.50, highest), percentile(counts, n, 0.99, highest),
+                percentile(counts, n, 0.999, highest), highest / NANOS_PER_MILLI);
+    }
+
+    private static double percentile(long[] counts, long n, double quantile, long highest) {
+        if (n == 0) return 0;
+        var rank = (long) Math.ceil(quantile * n);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(upperBoundOf(i), highest) / NANOS_PER_MILLI;
+        }
+        return highest / NANOS_PER_MILLI;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        var exponent = 63 - Long.numberOfLeadingZeros(value);
+        var subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) return index;
+        var exponent = (index >> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+        var subBucket = index & (SUB_BUCKETS - 1);
+        var width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((SUB_BUCKETS + subBucket) * width) + width - 1;
+    }
+
+    /**
+     * Point-in-time view of a recorder, all durations in milliseconds.
+     */
+    public record Snapshot(String name, long count, double mean, double p50, double p99, double p999, double max) {
+
+        @Override
+        public String toString() {
+            return "%s[count=%d, mean=%.2fms, p50=%.2fms, p99=%.2fms, p999=%.2fms, max=%.2fms]"
+                    .formatted(name, count, mean, p50, p99, p999, max);
+        }
+    }
+}
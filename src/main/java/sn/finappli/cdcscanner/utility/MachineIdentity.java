@@ -0,0 +1,216 @@
+package sn.finappli.cdcscanner.utility;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Hardware address, application identifier and public IP of this terminal, resolved once and kept in
+ * {@code ~/.cdc-scanner/identity.properties}. The hardware address is resolved again (which may cost a DNS lookup)
+ * only when the set of network interfaces changes; this is checked at most every {@code identity.check-interval}.
+ * <p>
+ * The public IP comes from {@code identity.public-ip} when set (e.g. to work offline), otherwise from the source the
+ * application installs with {@link #setPublicIpSource}. It is looked up on a background thread and refreshed after
+ * {@code identity.public-ip.ttl}; a failed lookup is retried after {@code identity.public-ip.retry}, and meanwhile
+ * {@link #getPublicIp()} answers the last known address (or none) at once.
+ */
+public final class MachineIdentity {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MachineIdentity.class);
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path file;
+    private final Duration checkInterval;
+    private final Duration publicIpTtl;
+    private final Duration publicIpRetry;
+    private final AtomicBoolean lookingUp = new AtomicBoolean();
+
+    private volatile Supplier<String> publicIpSource;
+
+    private volatile @Nullable Identity identity;
+    private volatile long nextCheckAt;
+    private volatile @Nullable String publicIp;
+    private volatile Instant publicIpResolvedAt = Instant.EPOCH;
+    private volatile long nextLookupAt;
+
+    public MachineIdentity(Path file, Supplier<String> publicIpSource, Duration checkInterval, Duration publicIpTtl,
+                           Duration publicIpRetry) {
+        this.file = file;
+        this.publicIpSource = publicIpSource;
+        this.checkInterval = checkInterval;
+        this.publicIpTtl = publicIpTtl;
+        this.publicIpRetry = publicIpRetry;
+        load();
+        nextLookupAt = publicIpResolvedAt.plus(publicIpTtl).toEpochMilli();
+    }
+
+    public static MachineIdentity getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public byte[] getHardwareAddress() throws UnknownHostException, SocketException {
+        var current = identity;
+        if (current == null || System.currentTimeMillis() >= nextCheckAt) current = refresh();
+        return current.hardwareAddress().clone();
+    }
+
+    public UUID getAppIdentifier() throws UnknownHostException, SocketException {
+        var current = identity;
+        if (current == null || System.currentTimeMillis() >= nextCheckAt) current = refresh();
+        return current.appId();
+    }
+
+    /**
+     * The last known public IP, without waiting: a lookup due (or retried) is started in the background.
+     */
+    public @Nullable String getPublicIp() {
+        if (System.currentTimeMillis() >= nextLookupAt && lookingUp.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("public-ip-lookup").start(this::lookUpPublicIp);
+        }
+        return publicIp;
+    }
+
+    /**
+     * Replaces the public IP source; its first lookup is due at once unless the known address is still fresh.
+     */
+    public void setPublicIpSource(Supplier<String> source) {
+        publicIpSource = source;
+        nextLookupAt = publicIpResolvedAt.plus(publicIpTtl).toEpochMilli();
+    }
+
+    private void lookUpPublicIp() {
+        try {
+            var source = publicIpSource;
+            String resolved;
+            try {
+                resolved = source.get();
+            } catch (RuntimeException e) {
+                LOGGER.debug("Public IP lookup failed: {}", e.getMessage());
+                resolved = null;
+            }
+            if (resolved == null) {
+                // keep the last known address while offline, and leave the source alone until the retry is due
+                if (source == publicIpSource) nextLookupAt = System.currentTimeMillis() + publicIpRetry.toMillis();
+                return;
+            }
+            publicIp = resolved;
+            publicIpResolvedAt = Instant.now();
+            nextLookupAt = publicIpResolvedAt.plus(publicIpTtl).toEpochMilli();
+            save();
+        } finally {
+            lookingUp.set(false);
+        }
+    }
+
+    private synchronized Identity refresh() throws UnknownHostException, SocketException {
+        var current = identity;
+        if (current != null && System.currentTimeMillis() < nextCheckAt) return current;
+        var fingerprint = interfacesFingerprint();
+        if (current == null || !current.fingerprint().equals(fingerprint)) {
+            var address = resolveHardwareAddress();
+            current = new Identity(address, UUID.nameUUIDFromBytes(address), fingerprint);
+            if (identity != null) LOGGER.info("Network interfaces changed, machine identity resolved again");
+            identity = current;
+            save();
+        }
+        nextCheckAt = System.currentTimeMillis() + checkInterval.toMillis();
+        return current;
+    }
+
+    private static byte[] resolveHardwareAddress() throws UnknownHostException, SocketException {
+        var localhost = InetAddress.getLocalHost();
+        var networkInterface = NetworkInterface.getByInetAddress(localhost);
+        if (networkInterface == null || networkInterface.getHardwareAddress() == null) throw new SocketException("NO_HARDWARE_ADDRESS");
+        return networkInterface.getHardwareAddress();
+    }
+
+    /**
+     * Names and hardware addresses of the non-loopback interfaces. Enumerating them is local, unlike resolving the
+     * host name.
+     */
+    private static String interfacesFingerprint() throws SocketException {
+        var entries = new ArrayList<String>();
+        var interfaces = NetworkInterface.getNetworkInterfaces();
+        while (interfaces != null && interfaces.hasMoreElements()) {
+            var networkInterface = interfaces.nextElement();
+            if (networkInterface.isLoopback()) continue;
+            var address = networkInterface.getHardwareAddress();
+            entries.add(STR."\{networkInterface.getName()}=\{address == null ? "" : HEX.formatHex(address)}");
+        }
+        entries.sort(null);
+        return String.join(";", entries);
+    }
+
+    private void load() {
+        if (!Files.isReadable(file)) return;
+        var properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+            var address = properties.getProperty("hardwareAddress");
+            if (address != null) {
+                var bytes = HEX.parseHex(address);
+                identity = new Identity(bytes, UUID.nameUUIDFromBytes(bytes), properties.getProperty("fingerprint", ""));
+            }
+            publicIp = properties.getProperty("publicIp");
+            var resolvedAt = properties.getProperty("publicIpResolvedAt");
+            if (resolvedAt != null) publicIpResolvedAt = Instant.parse(resolvedAt);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Ignoring unreadable {}: {}", file, e.getMessage());
+        }
+    }
+
+    private synchronized void save() {
+        var properties = new Properties();
+        var current = identity;
+        if (current != null) {
+            properties.setProperty("hardwareAddress", HEX.formatHex(current.hardwareAddress()));
+            properties.setProperty("fingerprint", current.fingerprint());
+        }
+        if (publicIp != null) {
+            properties.setProperty("publicIp", publicIp);
+            properties.setProperty("publicIpResolvedAt", publicIpResolvedAt.toString());
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            try (OutputStream out = Files.newOutputStream(file)) {
+                properties.store(out, "Machine identity cache");
+            }
+        } catch (IOException e) {
+            LOGGER.warn(e.getMessage(), e);
+        }
+    }
+
+    private record Identity(byte[] hardwareAddress, UUID appId, String fingerprint) {
+    }
+
+    private static final class Holder {
+        private static final MachineIdentity INSTANCE = create();
+
+        private static MachineIdentity create() {
+            var staticIp = AppConfig.get("identity.public-ip");
+            return new MachineIdentity(AppConfig.APP_HOME.resolve("identity.properties"), () -> staticIp,
+                    AppConfig.getDuration("identity.check-interval", Duration.ofMinutes(1)),
+                    AppConfig.getDuration("identity.public-ip.ttl", Duration.ofHours(1)),
+                    AppConfig.getDuration("identity.public-ip.retry", Duration.ofMinutes(1)));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package sn.finappli.cdcscanner.utility;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Application-wide registry of named counters, gauges and {@link LatencyRecorder}s. Lookups are done once, when
+ * a component is built; recording is then a lock-free update of the returned instrument, and reading them all
+ * only happens when {@link #snapshot()} is taken by the exporter.
+ */
+public final class Metrics {
+
+    private static final Map<String, LatencyRecorder> LATENCIES = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+
+    private Metrics() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    public static LatencyRecorder latency(String name) {
+        return LATENCIES.computeIfAbsent(name, LatencyRecorder::new);
+    }
+
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, _ -> new LongAdder());
+    }
+
+    /**
+     * Registers a value read at snapshot time, replacing any previous gauge of the same name.
+     */
+    public static void gauge(String name, LongSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    public static Snapshot snapshot() {
+        var counters = new TreeMap<String, Long>();
+        COUNTERS.forEach((name, counter) -> counters.put(name, counter.sum()));
+        var gauges = new TreeMap<String, Long>();
+        GAUGES.forEach((name, gauge) -> gauges.put(name, gauge.getAsLong()));
+        var latencies = LATENCIES.values().stream()
+                .filter(latency -> latency.count() > 0)
+                .map(LatencyRecorder::snapshot)
+                .sorted((a, b) -> a.name().compareTo(b.name()))
+                .toList();
+        return new Snapshot(Instant.now(), counters, gauges, latencies);
+    }
+
+    public record Snapshot(Instant at, Map<String, Long> counters, Map<String, Long> gauges,
+                           List<LatencyRecorder.Snapshot> latencies) {
+    }
+}
@@ -0,0 +1,102 @@
+package sn.finappli.cdcscanner.utility;
+
+import javafx.collections.ObservableListBase;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A read-only list of known size whose elements are fetched page by page, off the FX thread, the first time a
+ * virtualised control such as a {@code TableView} asks for them. Until its page arrives an element is
+ * {@code null}; the control is then told that the page was replaced and redraws those rows only.
+ * <p>
+ * At most {@code maxPages} pages are kept, least recently used first out, so the memory held does not depend on
+ * the size of the list. The last element of every page read is kept as a cursor, though: a page is fetched after
+ * the closest page before it already read, so that scrolling down does not skip again every element above.
+ * Not thread-safe: like any JavaFX list it is only used on the FX thread.
+ */
+public final class PagedList<T> extends ObservableListBase<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PagedList.class);
+
+    private final int size;
+    private final int pageSize;
+    private final PageSource<T> source;
+    private final Map<Integer, List<T>> pages;
+    private final Set<Integer> loading = new HashSet<>();
+    private final NavigableMap<Integer, T> lastOfPage = new TreeMap<>();
+
+    public PagedList(int size, int pageSize, int maxPages, PageSource<T> source) {
+        if (pageSize < 1 || maxPages < 1) throw new IllegalArgumentException("INVALID_PAGE_SIZE");
+        this.size = size;
+        this.pageSize = pageSize;
+        this.source = source;
+        this.pages = new LinkedHashMap<>(maxPages + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    @Override
+    public T get(int index) {
+        Objects.checkIndex(index, size);
+        var page = index / pageSize;
+        var rows = pages.get(page);
+        if (rows == null) {
+            load(page);
+            return null;
+        }
+        var row = index - page * pageSize;
+        return row < rows.size() ? rows.get(row) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void load(int page) {
+        if (!loading.add(page)) return;
+        var known = lastOfPage.lowerEntry(page);
+        var after = known == null ? null : known.getValue();
+        var skip = (known == null ? page : page - known.getKey() - 1) * pageSize;
+        FxTaskExecutor.getInstance()
+                .submitIo(_ -> source.page(after, skip, pageSize))
+                .onSucceeded(rows -> {
+                    loading.remove(page);
+                    pages.put(page, rows);
+                    if (!rows.isEmpty()) lastOfPage.put(page, rows.getLast());
+                    var from = page * pageSize;
+                    var to = Math.min(size, from + pageSize);
+                    beginChange();
+                    nextReplace(from, to, Collections.nCopies(to - from, null));
+                    endChange();
+                })
+                .onFailed(error -> {
+                    loading.remove(page);
+                    LOGGER.error("Cannot load page {}", page, error);
+                });
+    }
+
+    @FunctionalInterface
+    public interface PageSource<T> {
+
+        /**
+         * The {@code limit} elements following {@code skip} others after {@code after}, or after the start of the
+         * list when it is {@code null}.
+         */
+        List<T> page(@Nullable T after, int skip, int limit) throws Exception;
+    }
+}
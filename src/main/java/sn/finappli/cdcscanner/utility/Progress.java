@@ -0,0 +1,13 @@
+package sn.finappli.cdcscanner.utility;
+
+/**
+ * Progress sink handed to background work. Calls are cheap and may be made from any thread at any rate.
+ */
+public interface Progress {
+
+    void update(long done, long total);
+
+    void message(String message);
+
+    boolean isCancelled();
+}
@@ -0,0 +1,112 @@
+package sn.finappli.cdcscanner.utility;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.MDC;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One traced operation, typically a scan, on the current thread. Its id is put in the logging MDC under
+ * {@code trace} so that every log line of the operation can be correlated, and the time spent in each stage is
+ * recorded in {@link Metrics} as {@code <operation>.<stage>}.
+ * <p>
+ * Only a sample of the traces ({@code metrics.trace-sample-rate}, 1% by default) also keep the detail of their
+ * stages, handed to the exporter through a bounded queue; the others cost two {@code nanoTime} per stage.
+ */
+public final class Trace implements AutoCloseable {
+
+    private static final String MDC_KEY = "trace";
+    private static final int MAX_PENDING_SAMPLES = 1024;
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final Queue<Sample> SAMPLES = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger PENDING = new AtomicInteger();
+
+    private final String id;
+    private final String operation;
+    private final long start;
+    private final @Nullable String parent;
+    private final @Nullable List<Stage> stages;
+    private long last;
+
+    private Trace(String operation, boolean sampled) {
+        this.id = HexFormat.of().toHexDigits(ThreadLocalRandom.current().nextLong());
+        this.operation = operation;
+        this.start = System.nanoTime();
+        this.last = start;
+        this.parent = MDC.get(MDC_KEY);
+        this.stages = sampled ? new ArrayList<>(4) : null;
+        MDC.put(MDC_KEY, id);
+    }
+
+    public static Trace start(String operation) {
+        return new Trace(operation, ThreadLocalRandom.current().nextDouble() < SampleRate.VALUE);
+    }
+
+    public String id() {
+        return id;
+    }
+
+    /**
+     * Ends the current stage, started when the previous one ended or when the trace started.
+     */
+    public void stage(String name) {
+        var now = System.nanoTime();
+        Metrics.latency(STR."\{operation}.\{name}").record(now - last);
+        if (stages != null) stages.add(new Stage(name, now - last));
+        last = now;
+    }
+
+    @Override
+    public void close() {
+        var elapsed = System.nanoTime() - start;
+        Metrics.latency(operation).record(elapsed);
+        if (parent == null) MDC.remove(MDC_KEY);
+        else MDC.put(MDC_KEY, parent);
+        if (stages == null) return;
+        if (PENDING.incrementAndGet() > MAX_PENDING_SAMPLES) {
+            // nobody is exporting, the detail is dropped but the latencies are kept
+            PENDING.decrementAndGet();
+            return;
+        }
+        var detail = new LinkedHashMap<String, Double>();
+        stages.forEach(stage -> detail.merge(stage.name(), stage.nanos() / NANOS_PER_MILLI, Double::sum));
+        SAMPLES.add(new Sample(id, operation, Instant.now(), elapsed / NANOS_PER_MILLI, detail));
+    }
+
+    /**
+     * Takes the sampled traces completed since the last call.
+     */
+    public static List<Sample> drain() {
+        var drained = new ArrayList<Sample>();
+        Sample sample;
+        while ((sample = SAMPLES.poll()) != null) {
+            PENDING.decrementAndGet();
+            drained.add(sample);
+        }
+        return drained;
+    }
+
+    private record Stage(String name, long nanos) {
+    }
+
+    /**
+     * A sampled trace, durations in milliseconds.
+     */
+    public record Sample(String id, String operation, Instant end, double total, Map<String, Double> stages) {
+    }
+
+    private static final class SampleRate {
+        private static final double VALUE = Double.parseDouble(AppConfig.getString("metrics.trace-sample-rate", "0.01"));
+    }
+}
@@ -1,28 +1,34 @@
 package sn.finappli.cdcscanner.utility;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.databind.json.JsonMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
 
-import java.util.TimeZone;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 public final class Utils {
 
-    private static final JsonMapper JSON_MAPPER = JsonMapper.builder()
-            .addModule(new ParameterNamesModule())
-            .addModule(new JavaTimeModule())
-            .defaultTimeZone(TimeZone.getTimeZone("Africa/Dakar"))
-            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
-            .enable(SerializationFeature.WRITE_ENUMS_USING_TO_STRING)
-            .build();
+    private static final Set<String> SCANNED_IMAGE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "tif", "tiff", "bmp", "gif", "pdf");
 
     private Utils() {
         throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
     }
 
     public static <T> String classToJson(T object) throws JsonProcessingException {
-        return JSON_MAPPER.writeValueAsString(object);
+        return JsonCodec.toJson(object);
+    }
+
+    public static boolean isScannedImage(Path path) {
+        var name = path.getFileName().toString();
+        var dot = name.lastIndexOf('.');
+        return dot > 0 && SCANNED_IMAGE_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * The extensions accepted by {@link #isScannedImage}, as {@code *.ext} patterns for a file chooser.
+     */
+    public static List<String> scannedImagePatterns() {
+        return SCANNED_IMAGE_EXTENSIONS.stream().sorted().map(extension -> STR."*.\{extension}").toList();
     }
 }
@@ -0,0 +1,54 @@
+package sn.finappli.cdcscanner.service.impl;
+
+import org.junit.jupiter.api.Test;
+import sn.finappli.cdcscanner.model.output.ChequeReading;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class FallbackOCRReaderTest {
+
+    private static final File SCAN = new File("scan-0001.png");
+
+    @Test
+    void aConfidentPrimaryReadingIsKeptWithoutAskingTheSecondary() {
+        var primary = StubOCRReader.of(reading("1234567", 0.95));
+        var secondary = StubOCRReader.of(reading("7654321", 0.99));
+        var reader = new FallbackOCRReader(primary, secondary, 0.8);
+
+        assertSame(primary.readCheque(SCAN), reader.readCheque(SCAN));
+        assertEquals(0, secondary.getCallCount());
+    }
+
+    @Test
+    void aMoreConfidentSecondaryReadingWins() {
+        var primary = StubOCRReader.of(reading("1284567", 0.4));
+        var secondary = StubOCRReader.of(reading("1234567", 0.9));
+        var reader = new FallbackOCRReader(primary, secondary, 0.8);
+        var fallbacks = reader.getFallbackCount();
+        var wins = reader.getSecondaryWinCount();
+
+        assertEquals("1234567", reader.readCheque(SCAN).cmc());
+        assertEquals(1, secondary.getCallCount());
+        assertEquals(fallbacks + 1, reader.getFallbackCount());
+        assertEquals(wins + 1, reader.getSecondaryWinCount());
+    }
+
+    @Test
+    void aLessConfidentSecondaryReadingLosesToThePrimary() {
+        var primary = StubOCRReader.of(reading("1234567", 0.6));
+        var secondary = StubOCRReader.of(reading("1284567", 0.3));
+        var reader = new FallbackOCRReader(primary, secondary, 0.8);
+        var wins = reader.getSecondaryWinCount();
+
+        assertEquals("1234567", reader.readCheque(SCAN).cmc());
+        assertEquals(1, secondary.getCallCount());
+        assertEquals(wins, reader.getSecondaryWinCount());
+    }
+
+    private static ChequeReading reading(String cmc, double confidence) {
+        return new ChequeReading(cmc, null, null, "", confidence);
+    }
+}
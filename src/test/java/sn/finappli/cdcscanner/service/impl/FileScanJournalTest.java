@@ -0,0 +1,205 @@
+package sn.finappli.cdcscanner.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sn.finappli.cdcscanner.model.output.ScanRecord;
+import sn.finappli.cdcscanner.model.output.ScanRegistrationOutput;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileScanJournalTest {
+
+    private static final UUID APP_ID = UUID.nameUUIDFromBytes(new byte[]{1});
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopensFromTheSavedIndex() throws IOException {
+        try (var journal = new FileScanJournal(directory)) {
+            journal.append(scan("1000001", DAY, 9));
+            journal.append(scan("1000002", DAY, 10));
+            journal.append(scan("1000001", DAY.plusDays(1), 9));
+        }
+        assertTrue(Files.exists(directory.resolve("index.bin")));
+
+        try (var journal = new FileScanJournal(directory)) {
+            assertEquals(3, journal.size());
+            assertEquals(List.of("1000001", "1000002", "1000001"), cmcs(journal.latest(0, 10)));
+            assertEquals(2, journal.findByCmc("1000001").size());
+            assertEquals(2, journal.countBetween(DAY, DAY));
+            assertEquals(3, journal.countBetween(DAY, DAY.plusDays(1)));
+            assertTrue(journal.scannedSince("1000002", DAY.atStartOfDay()));
+            assertFalse(journal.scannedSince("1000002", DAY.plusDays(1).atStartOfDay()));
+
+            journal.append(scan("1000003", DAY.plusDays(1), 11));
+            assertEquals(4, journal.size());
+        }
+    }
+
+    @Test
+    void cutsOffATornLastRecord() throws IOException {
+        try (var journal = new FileScanJournal(directory)) {
+            journal.append(scan("1000001", DAY, 9));
+            journal.append(scan("1000002", DAY, 10));
+        }
+        var data = directory.resolve("scans.dat");
+        var complete = Files.size(data);
+        // a crash half-way through the next append: a header announcing more bytes than were written
+        Files.write(data, new byte[]{0, 0, 0, 60, 1, 2, 3, 4, 5, 6}, StandardOpenOption.APPEND);
+        Files.delete(directory.resolve("index.bin"));
+
+        try (var journal = new FileScanJournal(directory)) {
+            assertEquals(2, journal.size());
+            assertEquals(complete, Files.size(data));
+            journal.append(scan("1000003", DAY, 11));
+            assertEquals(List.of("1000003", "1000002", "1000001"), cmcs(journal.latest(0, 10)));
+        }
+    }
+
+    @Test
+    void replaysTheRecordsAppendedAfterTheLastIndexSave() throws IOException {
+        try (var journal = new FileScanJournal(directory)) {
+            journal.append(scan("1000001", DAY, 9));
+        }
+        var index = directory.resolve("index.bin");
+        var stale = directory.resolve("index.stale");
+        Files.copy(index, stale);
+        try (var journal = new FileScanJournal(directory)) {
+            journal.append(scan("1000002", DAY.plusDays(1), 9));
+            journal.append(scan("1000001", DAY.plusDays(1), 10));
+        }
+        // the process died before saving the index again: only the first record is covered
+        Files.move(stale, index, StandardCopyOption.REPLACE_EXISTING);
+
+        try (var journal = new FileScanJournal(directory)) {
+            assertEquals(3, journal.size());
+            assertEquals(2, journal.findByCmc("1000001").size());
+            assertEquals(2, journal.countBetween(DAY.plusDays(1), DAY.plusDays(1)));
+        }
+    }
+
+    @Test
+    void rebuildsEverythingWithoutAnIndex() throws IOException {
+        try (var journal = new FileScanJournal(directory)) {
+            journal.append(scan("1000001", DAY, 9));
+            journal.append(scan("CMC-A", DAY, 10));
+        }
+        Files.delete(directory.resolve("index.bin"));
+
+        try (var journal = new FileScanJournal(directory)) {
+            assertEquals(2, journal.size());
+            assertEquals(1, journal.findByCmc("CMC-A").size());
+            assertEquals(1, journal.findByCmc("1000001").size());
+        }
+    }
+
+    @Test
+    void compactionKeepsTheChainsOfTheRetainedScans() throws IOException {
+        try (var journal = new FileScanJournal(directory)) {
+            journal.append(scan("1000001", DAY, 9));
+            journal.append(scan("1000002", DAY, 10));
+            journal.append(scan("1000001", DAY.plusDays(1), 9));
+            journal.append(scan("1000003", DAY.plusDays(1), 10));
+            journal.append(scan("1000001", DAY.plusDays(2), 9));
+
+            journal.compact(DAY.plusDays(1));
+
+            assertEquals(3, journal.size());
+            var chain = journal.findByCmc("1000001");
+            assertEquals(List.of(DAY.plusDays(2), DAY.plusDays(1)), chain.stream().map(record -> record.date().toLocalDate()).toList());
+            assertTrue(journal.findByCmc("1000002").isEmpty());
+            assertEquals(0, journal.countBetween(DAY, DAY));
+            assertEquals(2, journal.countBetween(DAY.plusDays(1), DAY.plusDays(1)));
+            journal.append(scan("1000001", DAY.plusDays(2), 10));
+            assertEquals(3, journal.findByCmc("1000001").size());
+        }
+
+        try (var journal = new FileScanJournal(directory)) {
+            assertEquals(4, journal.size());
+            assertEquals(3, journal.findByCmc("1000001").size());
+        }
+    }
+
+    @Test
+    void pagesThroughADateRange() throws IOException {
+        try (var journal = new FileScanJournal(directory)) {
+            for (int i = 0; i < 4; i++) journal.append(scan("100000" + i, DAY, 8 + i));
+            for (int i = 4; i < 7; i++) journal.append(scan("100000" + i, DAY.plusDays(1), 8 + i));
+            journal.append(scan("1000007", DAY.plusDays(3), 8));
+
+            assertEquals(List.of("1000002", "1000003", "1000004"), cmcs(journal.findBetween(DAY, DAY.plusDays(1), 2, 3)));
+            assertEquals(List.of("1000006"), cmcs(journal.findBetween(DAY.plusDays(1), DAY.plusDays(2), 2, 10)));
+            assertTrue(journal.findBetween(DAY.plusDays(2), DAY.plusDays(2), 0, 10).isEmpty());
+            assertEquals(7, journal.countBetween(DAY, DAY.plusDays(1)));
+            assertEquals(0, journal.countBetween(DAY.plusDays(1), DAY));
+
+            var firstPage = journal.findBetween(DAY, DAY.plusDays(1), 0, 3);
+            assertEquals(List.of("1000003", "1000004", "1000005"),
+                    cmcs(journal.findBetween(DAY, DAY.plusDays(1), firstPage.getLast().id(), 0, 3)));
+            assertEquals(List.of("1000006"), cmcs(journal.findBetween(DAY, DAY.plusDays(1), firstPage.getLast().id(), 3, 3)));
+            assertEquals(List.of("1000005", "1000004"), cmcs(journal.latest(2, 2)));
+        }
+    }
+
+    @Test
+    void pagesFromAMarkAreNotShiftedByLaterScans() throws IOException {
+        try (var journal = new FileScanJournal(directory)) {
+            for (int i = 0; i < 5; i++) journal.append(scan("100000" + i, DAY, 8 + i));
+            var mark = journal.mark();
+            journal.append(scan("1000005", DAY, 14));
+            journal.append(scan("1000006", DAY, 15));
+
+            assertEquals(5, mark.count());
+            assertEquals(List.of("1000004", "1000003"), cmcs(journal.latest(mark.end(), 0, 2)));
+            assertEquals(List.of("1000002", "1000001"), cmcs(journal.latest(mark.end(), 2, 2)));
+            assertEquals(List.of("1000006", "1000005"), cmcs(journal.latest(0, 2)));
+        }
+    }
+
+    @Test
+    void numericAndHashedCmcsNeverShareAKey() throws IOException {
+        assertTrue(FileScanJournal.keyOf("1234567") >= 0);
+        assertTrue(FileScanJournal.keyOf("A234567") < 0);
+        assertNotEquals(FileScanJournal.keyOf("0001234"), FileScanJournal.keyOf("1234"));
+        // past 17 digits a CMC no longer fits the numeric encoding and is hashed
+        assertTrue(FileScanJournal.keyOf("123456789012345678") < 0);
+
+        try (var journal = new FileScanJournal(directory)) {
+            journal.append(scan("0001234", DAY, 9));
+            journal.append(scan("1234", DAY, 10));
+            journal.append(scan("123456789012345678", DAY, 11));
+            journal.append(scan("12345678901234567", DAY, 12));
+
+            assertEquals(List.of("0001234"), cmcs(journal.findByCmc("0001234")));
+            assertEquals(List.of("1234"), cmcs(journal.findByCmc("1234")));
+            assertEquals(List.of("123456789012345678"), cmcs(journal.findByCmc("123456789012345678")));
+            assertEquals(List.of("12345678901234567"), cmcs(journal.findByCmc("12345678901234567")));
+        }
+    }
+
+    private static ScanRegistrationOutput scan(String cmc, LocalDate day, int hour) {
+        return new ScanRegistrationOutput(APP_ID, "10.0.0.1", cmc, "JEAN DUPOND", LocalDateTime.of(day, LocalTime.of(hour, 0)),
+                new BigDecimal("1500.00"));
+    }
+
+    private static List<String> cmcs(List<ScanRecord> records) {
+        return records.stream().map(ScanRecord::cmc).toList();
+    }
+}
@@ -0,0 +1,108 @@
+package sn.finappli.cdcscanner.service.impl;
+
+import org.junit.jupiter.api.Test;
+import sn.finappli.cdcscanner.model.output.DeviceEvent;
+
+import javax.print.PrintService;
+import javax.print.attribute.HashPrintServiceAttributeSet;
+import javax.print.attribute.standard.PrinterInfo;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrinterPublisherTest {
+
+    private static final int CAPACITY = 2;
+
+    @Test
+    void dropNewestKeepsTheEventsBufferedFirst() throws InterruptedException {
+        assertEquals(List.of("ADDED printer-0", "ADDED printer-1", "ADDED printer-2"),
+                overflow(PrinterPublisher.OverflowPolicy.DROP_NEWEST));
+    }
+
+    @Test
+    void latestWinsKeepsTheLastEvents() throws InterruptedException {
+        assertEquals(List.of("ADDED printer-0", "ADDED printer-3", "CHANGED printer-1"),
+                overflow(PrinterPublisher.OverflowPolicy.LATEST_WINS));
+    }
+
+    /**
+     * Plugs four simulated printers in and changes the attributes of one, while the subscriber is stuck on the first
+     * event: the four that follow go to a buffer of two. Returns what the subscriber eventually receives.
+     */
+    private static List<String> overflow(PrinterPublisher.OverflowPolicy policy) throws InterruptedException {
+        var printers = new ArrayList<PrintService>();
+        var subscriber = new SlowSubscriber();
+        try (var publisher = new PrinterPublisher();
+             var watcher = new DeviceWatcher(() -> printers.toArray(PrintService[]::new), publisher,
+                     Duration.ofMinutes(1), Duration.ofMinutes(1))) {
+            publisher.subscribe(subscriber, CAPACITY, policy);
+
+            var first = new SimulatedPrinter("printer-0");
+            printers.add(first);
+            watcher.poll();
+            assertTrue(subscriber.busy.await(5, TimeUnit.SECONDS));
+
+            var second = new SimulatedPrinter("printer-1");
+            printers.add(second);
+            watcher.poll();
+            for (int i = 2; i < 4; i++) {
+                printers.add(new SimulatedPrinter(STR."printer-\{i}"));
+                watcher.poll();
+            }
+            second.setAttributes(new HashPrintServiceAttributeSet(new PrinterInfo("paper jam", null)));
+            assertEquals(2, publisher.getDroppedCount());
+
+            subscriber.release.countDown();
+            subscriber.subscription.request(Long.MAX_VALUE);
+        }
+        assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+        return subscriber.received;
+    }
+
+    /**
+     * Asks for one event, then holds on to it until released.
+     */
+    private static final class SlowSubscriber implements Flow.Subscriber<DeviceEvent> {
+
+        private final List<String> received = new CopyOnWriteArrayList<>();
+        private final CountDownLatch busy = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(DeviceEvent event) {
+            received.add(STR."\{event.type()} \{event.device().getName()}");
+            busy.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException _) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+}